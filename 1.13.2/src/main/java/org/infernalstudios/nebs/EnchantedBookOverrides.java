@@ -10,16 +10,25 @@ import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
 import net.minecraft.client.renderer.vertex.VertexFormat;
 import net.minecraft.enchantment.Enchantment;
-import net.minecraft.enchantment.EnchantmentHelper;
 import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.item.ItemEnchantedBook;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.resources.IResourceManager;
+import net.minecraft.resources.SimpleReloadableResourceManager;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.World;
 import net.minecraftforge.common.model.IModelState;
 import net.minecraftforge.registries.ForgeRegistries;
+import org.infernalstudios.nebs.core.EnchantmentAdapter;
+import org.infernalstudios.nebs.core.OverrideResolver;
+import org.infernalstudios.nebs.core.RegistrySnapshot;
+import org.infernalstudios.nebs.core.TagListAdapter;
+import org.infernalstudios.nebs.core.TagListResolver;
 
 import javax.annotation.Nullable;
-import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -74,7 +83,7 @@ import java.util.function.Function;
  * @since 2.0.0
  */
 @SuppressWarnings("deprecation") // We are wrapping things that use deprecated methods
-public final class EnchantedBookOverrides extends ItemOverrideList {
+public final class EnchantedBookOverrides extends ItemOverrideList implements EnchantmentAdapter<RegistrySnapshot<Enchantment>, Enchantment, IBakedModel>, TagListAdapter<NBTTagList, Enchantment> {
     /** The name of the vanilla enchanted book model, used as a base for NEBs own models. */
     static final String ENCHANTED_BOOK_UNBAKED_MODEL_NAME = "minecraft:item/enchanted_book";
 
@@ -94,11 +103,26 @@ public final class EnchantedBookOverrides extends ItemOverrideList {
         return new ResourceLocation(NekosEnchantedBooks.MOD_ID, enchantment.replace(".", "/"));
     }
 
-    private static final Set<String> PREPARED_ENCHANTMENTS = new HashSet<>();
-    private static final Set<ResourceLocation> PREPARED_MODELS = new HashSet<>();
+    /**
+     * The models prepared for the latest resource reload. A new generation is built every time models are prepared and
+     * replaces the old one as a whole, so nothing prepared for an older reload is ever baked or validated again.
+     */
+    private static volatile Generation generation = new Generation();
+    /**
+     * The field of the game's resource manager that holds the resource manager of every namespace, which in turn holds
+     * the open resource packs that have that namespace. There is no getter for it, so it is found by its type, since it
+     * is the only map the resource manager has and its name depends on the mappings. It is {@code null} if it could not
+     * be found, in which case every model of the game's resource manager is listed instead.
+     */
+    private static final @Nullable Field NAMESPACED_MANAGERS = findNamespacedManagers();
 
     private final ItemOverrideList base;
     private final Map<String, IBakedModel> overrides;
+    /** The registered enchantments by their registry name, exactly as the game writes it into a stack's NBT. */
+    private final Map<String, Enchantment> byId = new HashMap<>();
+    /** Resolves the overrides of the stored enchantments, through the lookup table and caches shared by every version. */
+    private final OverrideResolver<RegistrySnapshot<Enchantment>, Enchantment, IBakedModel> resolver;
+    private final TagListResolver<NBTTagList, Enchantment, IBakedModel> tags;
 
     @SuppressWarnings("unused") // BlockModelCoreMod
     public static ItemOverrideList of(ItemOverrideList base, String name, Function<ResourceLocation, IUnbakedModel> modelGetter, Function<ResourceLocation, TextureAtlasSprite> spriteGetter) {
@@ -126,6 +150,9 @@ public final class EnchantedBookOverrides extends ItemOverrideList {
     private EnchantedBookOverrides(ItemOverrideList base, ModelBaker baker) {
         this.base = base;
         this.overrides = bakeOverrides(baker);
+        this.resolver = new OverrideResolver<>(this, OverrideResolver.anyLevel(this.overrides.keySet()));
+        this.tags = new TagListResolver<>(this.resolver, this);
+        this.cache(ForgeRegistries.ENCHANTMENTS);
     }
 
     /**
@@ -135,11 +162,12 @@ public final class EnchantedBookOverrides extends ItemOverrideList {
      * @return The map of enchantment IDs to their respective baked models
      */
     private static Map<String, IBakedModel> bakeOverrides(ModelBaker baker) {
-        Map<String, IBakedModel> overrides = new HashMap<>(PREPARED_ENCHANTMENTS.size());
+        Generation generation = EnchantedBookOverrides.generation;
+        Map<String, IBakedModel> overrides = new HashMap<>(generation.enchantments.size());
         Set<String> failed = new TreeSet<>();
-        PREPARED_ENCHANTMENTS.forEach(enchantment -> {
+        generation.enchantments.forEach(enchantment -> {
             ResourceLocation model = locationFrom(enchantment);
-            if (!PREPARED_MODELS.contains(model)) {
+            if (!generation.models.contains(model)) {
                 if (!NekosEnchantedBooks.NON_ENCHANTMENTS.contains(enchantment))
                     failed.add(enchantment);
                 return;
@@ -172,28 +200,77 @@ public final class EnchantedBookOverrides extends ItemOverrideList {
 
     /**
      * Prepares all custom models to be used by NEBs. This includes resolving models so that their textures can be
-     * referenced even though it doesn't exist in a model file that is directly tied to an item.
+     * referenced even though it doesn't exist in a model file that is directly tied to an item. The model files are
+     * listed once up front, so checking if an enchantment has a model is a single set lookup. Only the resource packs
+     * that have the {@code nebs} namespace are walked, instead of every model of every pack.
      *
      * @param enchantments All registered enchantments
      * @param resolver     The model resolver
      */
     static void prepare(Iterable<Enchantment> enchantments, Consumer<ResourceLocation> resolver) {
+        Generation generation = new Generation();
+
+        // list our model files once, instead of probing the resource manager for every enchantment
+        Set<ResourceLocation> modelFiles = listModelFiles();
+
         enchantments.forEach(e -> {
             // save enchantment
             String enchantment = NekosEnchantedBooks.idOf(e);
-            PREPARED_ENCHANTMENTS.add(enchantment);
+            generation.enchantments.add(enchantment);
 
             // try and find model for enchantment
             ResourceLocation model = locationFrom(enchantment);
-            try {
-                Minecraft.getInstance().getResourceManager().getResource(new ResourceLocation(model.getNamespace(), "models/" + model.getPath() + ".json"));
-            } catch (IOException exception) {
+            if (!modelFiles.contains(new ResourceLocation(model.getNamespace(), "models/" + model.getPath() + ".json"))) {
                 return;
             }
 
-            PREPARED_MODELS.add(model);
+            generation.models.add(model);
             resolver.accept(modelLocationFrom(enchantment));
         });
+
+        // publish the new generation, releasing the old one
+        EnchantedBookOverrides.generation = generation;
+    }
+
+    /**
+     * Lists the model files of NEBs. The game's resource manager already holds every enabled resource pack open, grouped
+     * by namespace, so only the packs that have the {@code nebs} namespace are walked and no pack is opened again.
+     *
+     * @return The model files of NEBs
+     */
+    private static Set<ResourceLocation> listModelFiles() {
+        IResourceManager resources = Minecraft.getInstance().getResourceManager();
+        IResourceManager walked = resources;
+        if (NAMESPACED_MANAGERS != null && resources instanceof SimpleReloadableResourceManager) {
+            try {
+                @Nullable Object namespaced = ((Map<?, ?>) NAMESPACED_MANAGERS.get(resources)).get(NekosEnchantedBooks.MOD_ID);
+
+                // no pack has our namespace, so there is nothing to list
+                if (namespaced == null) return new HashSet<>();
+                if (namespaced instanceof IResourceManager) walked = (IResourceManager) namespaced;
+            } catch (IllegalAccessException | RuntimeException e) {
+                NekosEnchantedBooks.LOGGER.debug("Failed to get the resource packs of namespace {}, listing every model instead", NekosEnchantedBooks.MOD_ID, e);
+            }
+        }
+
+        // packs can't be listed by namespace, so anything outside of ours is skipped
+        Set<ResourceLocation> modelFiles = new HashSet<>();
+        for (ResourceLocation file : walked.getAllResourceLocations("models/item", path -> path.endsWith(".json"))) {
+            if (NekosEnchantedBooks.MOD_ID.equals(file.getNamespace())) modelFiles.add(file);
+        }
+
+        return modelFiles;
+    }
+
+    private static @Nullable Field findNamespacedManagers() {
+        for (Field field : SimpleReloadableResourceManager.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && field.getType() == Map.class) {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -230,24 +307,105 @@ public final class EnchantedBookOverrides extends ItemOverrideList {
      */
     @Override
     public @Nullable IBakedModel getModelWithOverrides(IBakedModel model, ItemStack stack, @Nullable World level, @Nullable EntityLivingBase entity) {
-        for (Enchantment enchantment : getEnchantments(stack)) {
-            String key = NekosEnchantedBooks.idOf(enchantment);
-            if (this.overrides.containsKey(key)) {
-                return this.overrides.get(key);
-            }
+        IBakedModel override = this.tags.resolve(getEnchantments(stack));
+        if (override != null) {
+            return override;
         }
 
         return this.base.getModelWithOverrides(model, stack, level, entity);
     }
 
     /**
-     * Gets the enchantment from the given stack. If the stack has no enchantments, then this method returns null. If
-     * the stack has multiple enchantments, then the first key found is what will be used.
+     * Compiles the {@linkplain OverrideResolver#rebuild(Object, Iterable) lookup table} for the given enchantments, and
+     * maps each of them by its registry name, exactly as the game writes it into a stack's NBT. This way, resolving an
+     * override is a walk over the stored enchantments list without decoding it into a map or computing any NEBs IDs.
+     *
+     * @param enchantments The enchantments to cache the overrides of
+     */
+    private void cache(Iterable<Enchantment> enchantments) {
+        for (Enchantment enchantment : enchantments) {
+            this.byId.put(String.valueOf(ForgeRegistries.ENCHANTMENTS.getKey(enchantment)), enchantment);
+        }
+
+        this.resolver.rebuild(new RegistrySnapshot<>(enchantments), enchantments);
+    }
+
+    @Override
+    public int rawIdOf(RegistrySnapshot<Enchantment> registry, Enchantment enchantment) {
+        return registry.rawIdOf(enchantment);
+    }
+
+    /** Models are only named after the description of an enchantment in this version, so there is no key ID. */
+    @Override
+    public @Nullable String keyIdOf(Enchantment enchantment) {
+        return null;
+    }
+
+    @Override
+    public String descriptionIdOf(Enchantment enchantment) {
+        return NekosEnchantedBooks.idOf(enchantment);
+    }
+
+    @Override
+    public int maxLevelOf(Enchantment enchantment) {
+        return enchantment.getMaxLevel();
+    }
+
+    @Override
+    public @Nullable IBakedModel overrideOf(String id) {
+        return this.overrides.get(id);
+    }
+
+    @Override
+    public int sizeOf(NBTTagList enchantments) {
+        return enchantments.size();
+    }
+
+    @Override
+    public String idAt(NBTTagList enchantments, int index) {
+        return enchantments.getCompound(index).getString("id");
+    }
+
+    @Override
+    public int levelAt(NBTTagList enchantments, int index) {
+        return enchantments.getCompound(index).getShort("lvl");
+    }
+
+    /**
+     * Gets the enchantment of the given registry name. If the ID is not written the way the game writes it (i.e. it is
+     * missing its namespace), it is parsed and looked up in the registry instead.
      *
-     * @param stack The stack to get the enchantment from
-     * @return The enchantment of the stack, or {@code null} if it does not have any
+     * @param id The enchantment ID, as stored in the stack's NBT
+     * @return The enchantment, or {@code null} if there is none with that ID
+     */
+    @Override
+    public @Nullable Enchantment enchantmentOf(String id) {
+        Enchantment enchantment = this.byId.get(id);
+        if (enchantment != null) return enchantment;
+
+        ResourceLocation location = ResourceLocation.makeResourceLocation(id);
+        return location != null ? ForgeRegistries.ENCHANTMENTS.getValue(location) : null;
+    }
+
+    /**
+     * Gets the stored enchantments from the given stack. The list is read directly from the stack's NBT, so walking it by
+     * index does not allocate anything. If the stack has multiple enchantments, then the first one found that has an
+     * override is what will be used.
+     *
+     * @param stack The stack to get the enchantments from
+     * @return The stored enchantments of the stack
+     */
+    private static NBTTagList getEnchantments(ItemStack stack) {
+        return ItemEnchantedBook.getEnchantments(stack);
+    }
+
+    /**
+     * The state of a single resource reload.
      */
-    private static Iterable<Enchantment> getEnchantments(ItemStack stack) {
-        return EnchantmentHelper.getEnchantments(stack).keySet();
+    private static final class Generation {
+        /** The models that were found when the models were prepared. */
+        private final Set<ResourceLocation> models = new HashSet<>();
+        /** The NEBs IDs of every enchantment that was registered when the models were prepared. */
+        private final Set<String> enchantments = new HashSet<>();
     }
 }
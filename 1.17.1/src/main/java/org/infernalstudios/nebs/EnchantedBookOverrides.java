@@ -9,11 +9,18 @@ import net.minecraft.client.resources.model.BlockModelRotation;
 import net.minecraft.client.resources.model.Material;
 import net.minecraft.client.resources.model.ModelBakery;
 import net.minecraft.client.resources.model.ModelState;
+import net.minecraft.nbt.ListTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.item.EnchantedBookItem;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.enchantment.Enchantment;
-import net.minecraft.world.item.enchantment.EnchantmentHelper;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.infernalstudios.nebs.core.EnchantmentAdapter;
+import org.infernalstudios.nebs.core.OverrideResolver;
+import org.infernalstudios.nebs.core.RegistrySnapshot;
+import org.infernalstudios.nebs.core.TagListAdapter;
+import org.infernalstudios.nebs.core.TagListResolver;
 
 import javax.annotation.Nullable;
 import java.util.HashMap;
@@ -70,7 +77,7 @@ import java.util.function.Function;
  * @since 2.0.0
  */
 @SuppressWarnings("deprecation") // We are wrapping things that use deprecated methods
-public final class EnchantedBookOverrides extends ItemOverrides {
+public final class EnchantedBookOverrides extends ItemOverrides implements EnchantmentAdapter<RegistrySnapshot<Enchantment>, Enchantment, BakedModel>, TagListAdapter<ListTag, Enchantment> {
     /** The name of the vanilla enchanted book model, used as a base for NEBs own models. */
     static final String ENCHANTED_BOOK_UNBAKED_MODEL_NAME = "minecraft:item/enchanted_book";
 
@@ -78,11 +85,19 @@ public final class EnchantedBookOverrides extends ItemOverrides {
         return new ResourceLocation(NekosEnchantedBooks.MOD_ID, "item/" + enchantment.replace(".", "/"));
     }
 
-    private static final Set<String> PREPARED_ENCHANTMENTS = new HashSet<>();
-    private static final Set<ResourceLocation> PREPARED_MODELS = new HashSet<>();
+    /**
+     * The models prepared for the latest resource reload. A new generation is built every time models are prepared and
+     * replaces the old one as a whole, so nothing prepared for an older reload is ever baked or validated again.
+     */
+    private static volatile Generation generation = new Generation();
 
     private final ItemOverrides base;
     private final Map<String, BakedModel> overrides;
+    /** The registered enchantments by their registry name, exactly as the game writes it into a stack's NBT. */
+    private final Map<String, Enchantment> byId = new HashMap<>();
+    /** Resolves the overrides of the stored enchantments, through the lookup table and caches shared by every version. */
+    private final OverrideResolver<RegistrySnapshot<Enchantment>, Enchantment, BakedModel> resolver;
+    private final TagListResolver<ListTag, Enchantment, BakedModel> tags;
 
     @SuppressWarnings("unused") // BlockModelCoreMod
     public static ItemOverrides of(ItemOverrides base, String location, ModelBakery bakery) {
@@ -122,6 +137,9 @@ public final class EnchantedBookOverrides extends ItemOverrides {
     private EnchantedBookOverrides(ItemOverrides base, ModelBaker baker) {
         this.base = base;
         this.overrides = bakeOverrides(baker);
+        this.resolver = new OverrideResolver<>(this, OverrideResolver.anyLevel(this.overrides.keySet()));
+        this.tags = new TagListResolver<>(this.resolver, this);
+        this.cache(ForgeRegistries.ENCHANTMENTS);
     }
 
     /**
@@ -131,11 +149,12 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      * @return The map of enchantment IDs to their respective baked models
      */
     private static Map<String, BakedModel> bakeOverrides(ModelBaker baker) {
-        Map<String, BakedModel> overrides = new HashMap<>(PREPARED_ENCHANTMENTS.size());
+        Generation generation = EnchantedBookOverrides.generation;
+        Map<String, BakedModel> overrides = new HashMap<>(generation.enchantments().size());
         Set<String> failed = new TreeSet<>();
-        PREPARED_ENCHANTMENTS.forEach(enchantment -> {
+        generation.enchantments().forEach(enchantment -> {
             ResourceLocation model = locationFrom(enchantment);
-            if (!PREPARED_MODELS.contains(model)) {
+            if (!generation.models().contains(model)) {
                 if (!NekosEnchantedBooks.NON_ENCHANTMENTS.contains(enchantment))
                     failed.add(enchantment);
                 return;
@@ -169,10 +188,11 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      * @param resolver     The model resolver
      */
     static void prepare(Iterable<Enchantment> enchantments, Consumer<ResourceLocation> resolver) {
+        Generation generation = new Generation();
         enchantments.forEach(e -> {
             // save enchantment
             String enchantment = NekosEnchantedBooks.idOf(e);
-            PREPARED_ENCHANTMENTS.add(enchantment);
+            generation.enchantments().add(enchantment);
 
             // try and find model for enchantment
             ResourceLocation model = locationFrom(enchantment);
@@ -180,9 +200,12 @@ public final class EnchantedBookOverrides extends ItemOverrides {
                 return;
             }
 
-            PREPARED_MODELS.add(model);
+            generation.models().add(model);
             resolver.accept(model);
         });
+
+        // publish the new generation, releasing the old one
+        EnchantedBookOverrides.generation = generation;
     }
 
     /**
@@ -218,24 +241,107 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      */
     @Override
     public @Nullable BakedModel resolve(BakedModel model, ItemStack stack, @Nullable ClientLevel level, @Nullable LivingEntity entity, int seed) {
-        for (Enchantment enchantment : getEnchantments(stack)) {
-            String key = NekosEnchantedBooks.idOf(enchantment);
-            if (this.overrides.containsKey(key)) {
-                return this.overrides.get(key);
-            }
+        BakedModel override = this.tags.resolve(getEnchantments(stack));
+        if (override != null) {
+            return override;
         }
 
         return this.base.resolve(model, stack, level, entity, seed);
     }
 
     /**
-     * Gets the enchantment from the given stack. If the stack has no enchantments, then this method returns null. If
-     * the stack has multiple enchantments, then the first key found is what will be used.
+     * Compiles the {@linkplain OverrideResolver#rebuild(Object, Iterable) lookup table} for the given enchantments, and
+     * maps each of them by its registry name, exactly as the game writes it into a stack's NBT. This way, resolving an
+     * override is a walk over the stored enchantments list without decoding it into a map or computing any NEBs IDs.
+     *
+     * @param enchantments The enchantments to cache the overrides of
+     */
+    private void cache(Iterable<Enchantment> enchantments) {
+        for (Enchantment enchantment : enchantments) {
+            this.byId.put(String.valueOf(ForgeRegistries.ENCHANTMENTS.getKey(enchantment)), enchantment);
+        }
+
+        this.resolver.rebuild(new RegistrySnapshot<>(enchantments), enchantments);
+    }
+
+    @Override
+    public int rawIdOf(RegistrySnapshot<Enchantment> registry, Enchantment enchantment) {
+        return registry.rawIdOf(enchantment);
+    }
+
+    /** Models are only named after the description of an enchantment in this version, so there is no key ID. */
+    @Override
+    public @Nullable String keyIdOf(Enchantment enchantment) {
+        return null;
+    }
+
+    @Override
+    public String descriptionIdOf(Enchantment enchantment) {
+        return NekosEnchantedBooks.idOf(enchantment);
+    }
+
+    @Override
+    public int maxLevelOf(Enchantment enchantment) {
+        return enchantment.getMaxLevel();
+    }
+
+    @Override
+    public @Nullable BakedModel overrideOf(String id) {
+        return this.overrides.get(id);
+    }
+
+    @Override
+    public int sizeOf(ListTag enchantments) {
+        return enchantments.size();
+    }
+
+    @Override
+    public String idAt(ListTag enchantments, int index) {
+        return enchantments.getCompound(index).getString("id");
+    }
+
+    @Override
+    public int levelAt(ListTag enchantments, int index) {
+        return enchantments.getCompound(index).getShort("lvl");
+    }
+
+    /**
+     * Gets the enchantment of the given registry name. If the ID is not written the way the game writes it (i.e. it is
+     * missing its namespace), it is parsed and looked up in the registry instead.
+     *
+     * @param id The enchantment ID, as stored in the stack's NBT
+     * @return The enchantment, or {@code null} if there is none with that ID
+     */
+    @Override
+    public @Nullable Enchantment enchantmentOf(String id) {
+        Enchantment enchantment = this.byId.get(id);
+        if (enchantment != null) return enchantment;
+
+        ResourceLocation location = ResourceLocation.tryParse(id);
+        return location != null ? ForgeRegistries.ENCHANTMENTS.getValue(location) : null;
+    }
+
+    /**
+     * Gets the stored enchantments from the given stack. The list is read directly from the stack's NBT, so walking it by
+     * index does not allocate anything. If the stack has multiple enchantments, then the first one found that has an
+     * override is what will be used.
      *
-     * @param stack The stack to get the enchantment from
-     * @return The enchantment of the stack, or {@code null} if it does not have any
+     * @param stack The stack to get the enchantments from
+     * @return The stored enchantments of the stack
      */
-    private static Iterable<Enchantment> getEnchantments(ItemStack stack) {
-        return EnchantmentHelper.getEnchantments(stack).keySet();
+    private static ListTag getEnchantments(ItemStack stack) {
+        return EnchantedBookItem.getEnchantments(stack);
+    }
+
+    /**
+     * The state of a single resource reload.
+     *
+     * @param models       The models that were found when the models were prepared
+     * @param enchantments The NEBs IDs of every enchantment that was registered when the models were prepared
+     */
+    private record Generation(Set<ResourceLocation> models, Set<String> enchantments) {
+        private Generation() {
+            this(new HashSet<>(), new HashSet<>());
+        }
     }
 }
@@ -9,21 +9,30 @@ import net.minecraftforge.client.model.generators.ItemModelProvider;
 import net.minecraftforge.client.model.generators.ModelFile;
 import net.minecraftforge.common.data.ExistingFileHelper;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Stream;
 
 /**
@@ -50,6 +59,7 @@ public class EnchantedBookModelProvider extends ItemModelProvider {
     private static final String ENCHANTED_BOOK_TEXTURE_KEY = "layer0";
 
     private Map<String, List<String>> overrides = Collections.emptyMap();
+    private Map<String, String> canonicalTextures = Collections.emptyMap();
 
     /**
      * Creates a new provider for the given output, mod ID, and existing file helper.
@@ -76,16 +86,24 @@ public class EnchantedBookModelProvider extends ItemModelProvider {
     @Override
     protected final void registerModels() {
         this.loadOverrides();
+
+        Map<String, Path> textures = new TreeMap<>();
         this.listResources(EXPECTED_PATH)
-            .map(Path::toString).filter(s -> s.endsWith(".png"))
-            .map(s -> s.substring(s.indexOf(EXPECTED_PATH) + (EXPECTED_PATH + "/").length(), s.length() - ".png".length()).replace("/", "."))
-            .forEach(this::generateModel);
+            .filter(path -> path.toString().endsWith(".png"))
+            .forEach(path -> {
+                String s = path.toString();
+                textures.put(s.substring(s.indexOf(EXPECTED_PATH) + (EXPECTED_PATH + "/").length(), s.length() - ".png".length()).replace("/", "."), path);
+            });
+
+        this.canonicalTextures = deduplicateTextures(textures);
+        textures.keySet().forEach(this::generateModel);
     }
 
     private void generateModel(String name) {
-        this.generateModel(name, name);
+        String texture = this.canonicalTextures.getOrDefault(name, name);
+        this.generateModel(texture, name);
         for (String override : this.overrides.getOrDefault(name, Collections.emptyList())) {
-            this.generateModel(name, override);
+            this.generateModel(texture, override);
         }
     }
 
@@ -101,6 +119,62 @@ public class EnchantedBookModelProvider extends ItemModelProvider {
             .texture(ENCHANTED_BOOK_TEXTURE_KEY, textureLoc);
     }
 
+    /**
+     * Finds the textures that are pixel-identical to another texture, so that their models can point to a single
+     * canonical texture instead. This means fewer sprites need to be stitched and uploaded. The canonical texture of
+     * each group of duplicates is the first one in alphabetical order, and every group that is found is reported in the
+     * log. Animated textures are never deduplicated, since their animation data might differ.
+     *
+     * @param textures The textures to deduplicate, keyed by name
+     * @return The map of duplicate texture names to their canonical texture names
+     */
+    private static Map<String, String> deduplicateTextures(Map<String, Path> textures) {
+        Map<String, String> canonical = new HashMap<>();
+        Map<String, String> hashes = new HashMap<>();
+        Map<String, List<String>> duplicates = new TreeMap<>();
+        textures.forEach((name, path) -> {
+            if (Files.exists(path.resolveSibling(path.getFileName() + ".mcmeta"))) return;
+
+            String first = hashes.putIfAbsent(hashPixels(path), name);
+            if (first != null) {
+                canonical.put(name, first);
+                duplicates.computeIfAbsent(first, k -> new ArrayList<>()).add(name);
+            }
+        });
+
+        if (!duplicates.isEmpty()) {
+            NekosEnchantedBooks.LOGGER.info("Found {} duplicate enchanted book textures, their models will use the canonical texture instead:", canonical.size());
+            duplicates.forEach((texture, names) -> NekosEnchantedBooks.LOGGER.info("  {} <- [{}]", texture, String.join(", ", names)));
+        }
+
+        return canonical;
+    }
+
+    /**
+     * Hashes the decoded pixel data of the given texture. Fully transparent pixels are all hashed the same, since their
+     * color is never visible.
+     *
+     * @param path The path of the texture to hash
+     * @return The hash of the texture's pixels
+     */
+    private static String hashPixels(Path path) {
+        try (InputStream input = Files.newInputStream(path)) {
+            BufferedImage image = ImageIO.read(input);
+            if (image == null) throw new IOException("Unsupported image format");
+
+            int width = image.getWidth(), height = image.getHeight();
+            int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+            ByteBuffer buffer = ByteBuffer.allocate((pixels.length + 2) * Integer.BYTES).putInt(width).putInt(height);
+            for (int pixel : pixels) {
+                buffer.putInt((pixel >>> 24) == 0 ? 0 : pixel);
+            }
+
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(buffer.array()));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to hash texture " + path, e);
+        }
+    }
+
     private void loadOverrides() {
         try (InputStream file = this.getClass().getClassLoader().getResourceAsStream(OVERRIDES_PATH)) {
             if (file == null) return;
@@ -0,0 +1,145 @@
+package org.infernalstudios.nebs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * <h1>Enchanted Book Events</h1>
+ * These are the Java Flight Recorder events emitted by NEBs, so that a recording taken with
+ * {@code -XX:StartFlightRecording} shows the work done by NEBs alongside garbage collection and the resource reload of
+ * the game itself. Every event is in the {@code NEBs} category:
+ * <ul>
+ *     <li>{@code nebs.Discovery}, for every time the enchanted book models are discovered. Models are only looked up
+ *     for registered enchantments in this version, so none are ever pruned.</li>
+ *     <li>{@code nebs.Bake}, for every enchanted book model that is baked, lazily or not.</li>
+ *     <li>{@code nebs.Validate}, for every time the registered enchantments are validated. This version validates them
+ *     while the models are baked, so the event only marks when that happened and how many were missing.</li>
+ *     <li>{@code nebs.Resolve}, for the books {@linkplain org.infernalstudios.nebs.core.ResolutionStats#sample(boolean)
+ *     sampled} while rendering. Only one in every
+ *     {@value org.infernalstudios.nebs.core.ResolutionStats#SAMPLE_RATE} books is sampled, so the event is throttled
+ *     even though books are resolved every frame. Books are sampled for this event while it is enabled, even if the
+ *     resolution stats are not being collected.</li>
+ * </ul>
+ * When the recorder is off, {@link Event#begin()} and {@link Event#commit()} do nothing and every event is discarded
+ * before any of its fields are set. Resolve events are not even allocated unless the recorder has them enabled, since
+ * books are resolved on the render thread.
+ *
+ * @since 2.0.4
+ */
+final class EnchantedBookEvents {
+    private static final EventType RESOLVE = EventType.getEventType(Resolve.class);
+
+    @Name("nebs.Discovery")
+    @Label("Enchanted Book Model Discovery")
+    @Description("The enchanted book models were discovered for a resource reload")
+    @Category("NEBs")
+    @StackTrace(false)
+    static final class Discovery extends Event {
+        @Label("Models")
+        @Description("The amount of models that were discovered")
+        int models;
+
+        @Label("Pruned")
+        @Description("The amount of models that were skipped because their mod is not loaded")
+        int pruned;
+    }
+
+    @Name("nebs.Bake")
+    @Label("Enchanted Book Model Bake")
+    @Description("An enchanted book model was baked")
+    @Category("NEBs")
+    @StackTrace(false)
+    static final class Bake extends Event {
+        @Label("Model")
+        @Description("The NEBs ID of the model")
+        String model;
+
+        @Label("Success")
+        @Description("Whether the model was baked, or the baker returned nothing")
+        boolean success;
+
+        Bake(String model) {
+            this.model = model;
+        }
+
+        /**
+         * Commits this event once the model has been baked.
+         *
+         * @param success If the model was baked
+         */
+        void finish(boolean success) {
+            if (!this.shouldCommit()) return;
+
+            this.success = success;
+            this.commit();
+        }
+    }
+
+    @Name("nebs.Validate")
+    @Label("Enchanted Book Validation")
+    @Description("The registered enchantments were checked for enchanted book models")
+    @Category("NEBs")
+    @StackTrace(false)
+    static final class Validate extends Event {
+        @Label("Enchantments")
+        @Description("The amount of enchantments that were checked")
+        int enchantments;
+
+        @Label("Missing")
+        @Description("The amount of enchantments without an enchanted book model")
+        int missing;
+    }
+
+    @Name("nebs.Resolve")
+    @Label("Enchanted Book Resolve")
+    @Description("A sampled enchanted book was resolved while rendering")
+    @Category("NEBs")
+    @StackTrace(false)
+    static final class Resolve extends Event {
+        @Label("Enchantments")
+        @Description("The amount of stored enchantments on the book")
+        int enchantments;
+
+        @Label("Override")
+        @Description("Whether the book was resolved to an override from NEBs, instead of falling through to the base model")
+        boolean override;
+
+        @Label("Latency")
+        @Description("The time it took to resolve the book")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    /** @return If the {@code nebs.Resolve} event is enabled in a running recording, so that books should be sampled */
+    static boolean recording() {
+        return RESOLVE.isEnabled();
+    }
+
+    /**
+     * Emits a {@code nebs.Resolve} event for a sampled book. The latency is measured by the caller and recorded as a
+     * field, since it is already measured for the resolution stats.
+     *
+     * @param enchantments The amount of stored enchantments on the book
+     * @param override     If the book was resolved to an override from NEBs
+     * @param latency      The time it took to resolve the book, in nanoseconds
+     */
+    static void resolved(int enchantments, boolean override, long latency) {
+        if (!RESOLVE.isEnabled()) return;
+
+        Resolve event = new Resolve();
+        if (!event.shouldCommit()) return;
+
+        event.enchantments = enchantments;
+        event.override = override;
+        event.latency = latency;
+        event.commit();
+    }
+
+    private EnchantedBookEvents() { }
+}
@@ -1,11 +1,11 @@
 package org.infernalstudios.nebs;
 
+import com.mojang.blaze3d.systems.RenderSystem;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.block.model.ItemOverrides;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.resources.model.BakedModel;
-import net.minecraft.client.resources.model.BlockModelRotation;
 import net.minecraft.client.resources.model.Material;
 import net.minecraft.client.resources.model.ModelBaker;
 import net.minecraft.client.resources.model.ModelState;
@@ -17,14 +17,25 @@ import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.enchantment.Enchantment;
 import net.minecraft.world.item.enchantment.ItemEnchantments;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.infernalstudios.nebs.core.BakeProfile;
+import org.infernalstudios.nebs.core.EnchantmentAdapter;
+import org.infernalstudios.nebs.core.OverrideCursor;
+import org.infernalstudios.nebs.core.OverrideResolver;
+import org.infernalstudios.nebs.core.RegistrySnapshot;
+import org.infernalstudios.nebs.core.ResolutionStats;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -73,7 +84,7 @@ import java.util.function.Function;
  * @since 2.0.0
  */
 @SuppressWarnings("deprecation") // We are wrapping things that use deprecated methods
-public final class EnchantedBookOverrides extends ItemOverrides {
+public final class EnchantedBookOverrides extends ItemOverrides implements EnchantmentAdapter<RegistrySnapshot<Enchantment>, Enchantment, BakedModel> {
     /** The name of the vanilla enchanted book model, used as a base for NEBs own models. */
     static final String ENCHANTED_BOOK_UNBAKED_MODEL_NAME = "minecraft:item/enchanted_book";
 
@@ -81,11 +92,28 @@ public final class EnchantedBookOverrides extends ItemOverrides {
         return new ResourceLocation(NekosEnchantedBooks.MOD_ID, "item/" + enchantment.replace(".", "/"));
     }
 
-    private static final Set<String> PREPARED_ENCHANTMENTS = new HashSet<>();
-    private static final Set<ResourceLocation> PREPARED_MODELS = new HashSet<>();
+    /**
+     * The models prepared for the latest resource reload. A new generation is built every time models are prepared and
+     * replaces the old one as a whole, so nothing prepared for an older reload is ever baked or validated again.
+     */
+    private static volatile Generation generation = new Generation();
+    /** The bake profile of the latest resource reload, started when models are prepared and reported once they are baked. */
+    private static volatile BakeProfile profile = new BakeProfile();
+    /** The file the {@linkplain #report(BakeProfile) bake profile} of every resource reload is written to. */
+    private static final Path PROFILE_FILE = FMLPaths.GAMEDIR.get().resolve("logs").resolve("nebs-bake-profile.json");
+    /** The most recently baked overrides, whose resolution stats are shown by {@link EnchantedBookMetrics}. */
+    private static volatile @Nullable EnchantedBookOverrides current;
 
     private final ItemOverrides base;
     private final Map<String, BakedModel> overrides;
+    /** The models that have yet to be baked, only populated if {@link NekosEnchantedBooksConfig#LAZY_BAKING} is enabled. */
+    private final Map<String, EnchantedBookTemplateBaker.Deferred> unbaked;
+    /** Whether any model in {@link #unbaked} has yet to be baked, which is cleared once every one of them has been. */
+    private volatile boolean lazy;
+    /** Resolves the overrides of the stored enchantments, through the lookup table and caches shared by every version. */
+    private final OverrideResolver<RegistrySnapshot<Enchantment>, Enchantment, BakedModel> resolver;
+    private final OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> cursor = this.newCursor();
+    private final Function<ItemEnchantments, BakedModel> finder = this::find;
 
     @SuppressWarnings("unused") // BlockModelCoreMod
     public static ItemOverrides of(ItemOverrides base, String location, ModelBaker baker) {
@@ -133,8 +161,11 @@ public final class EnchantedBookOverrides extends ItemOverrides {
 
     /**
      * This constructor follows up on the baking of the enchanted book item model's overrides. It calls the
-     * {@link #bakeOverrides(ModelBaker)} method, where existing models are queried for automatic model loading. The
-     * process of taking advantage of automatic model loading was described in the documentation for the class in
+     * {@link #bakeOverrides(ModelBaker, Map)} method, where existing models are queried for automatic model loading. If
+     * {@linkplain NekosEnchantedBooksConfig#LAZY_BAKING lazy baking} is enabled, the models are only deferred here and
+     * are instead baked by {@link #bakedOverride(String)} the first time they are needed. The model baker is never kept,
+     * so it is released along with the rest of the model bakery once the resource reload is done. The process of taking
+     * advantage of automatic model loading was described in the documentation for the class in
      * {@link EnchantedBookOverrides}.
      *
      * @param base  Any existing item overrides that exist in the base enchanted book model
@@ -144,28 +175,56 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      */
     private EnchantedBookOverrides(ItemOverrides base, ModelBaker baker) {
         this.base = base;
-        this.overrides = bakeOverrides(baker);
+        boolean lazy = NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.LAZY_BAKING);
+        this.unbaked = lazy ? new HashMap<>() : Collections.emptyMap();
+        this.overrides = bakeOverrides(baker, lazy ? this.unbaked : null);
+        this.lazy = !this.unbaked.isEmpty();
+        this.resolver = new OverrideResolver<>(this, OverrideResolver.anyLevel(this.overrides.keySet()) || OverrideResolver.anyLevel(this.unbaked.keySet()));
+        this.cache(ForgeRegistries.ENCHANTMENTS);
+        current = this;
     }
 
     /**
-     * Bakes the custom overrides used for the enchanted books.
+     * Bakes the custom overrides used for the enchanted books. Models are baked through an
+     * {@link EnchantedBookTemplateBaker}, so that models sharing the same texture also share the same baked model.
+     * <p>
+     * If the models are baked lazily, every model that can be baked from a template is
+     * {@linkplain EnchantedBookTemplateBaker#defer(ResourceLocation) deferred} into the given map instead, and only the
+     * templates themselves are baked now. Any other model still needs the model baker, so it is baked now as well.
      *
-     * @param baker The model baker
+     * @param baker    The model baker
+     * @param deferred The map to put the deferred models in, or {@code null} if the models are not baked lazily
      * @return The map of enchantment IDs to their respective baked models
      */
-    private static Map<String, BakedModel> bakeOverrides(ModelBaker baker) {
-        Map<String, BakedModel> overrides = new HashMap<>(PREPARED_ENCHANTMENTS.size());
+    private static Map<String, BakedModel> bakeOverrides(ModelBaker baker, @Nullable Map<String, EnchantedBookTemplateBaker.Deferred> deferred) {
+        Generation generation = EnchantedBookOverrides.generation;
+        BakeProfile profile = EnchantedBookOverrides.profile;
+        long start = System.nanoTime();
+        Map<String, BakedModel> overrides = deferred != null ? new ConcurrentHashMap<>() : new HashMap<>(generation.enchantments().size());
         Set<String> failed = new TreeSet<>();
-        PREPARED_ENCHANTMENTS.forEach(enchantment -> {
+        EnchantedBookTemplateBaker templates = new EnchantedBookTemplateBaker(baker, NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.TEMPLATE_BAKING));
+        generation.enchantments().forEach(enchantment -> {
             ResourceLocation model = locationFrom(enchantment);
-            if (!PREPARED_MODELS.contains(model)) {
+            if (!generation.models().contains(model)) {
                 if (!NekosEnchantedBooks.NON_ENCHANTMENTS.contains(enchantment))
                     failed.add(enchantment);
                 return;
             }
 
+            // failed models are logged when they are baked
+            @Nullable EnchantedBookTemplateBaker.Deferred later = deferred != null ? templates.defer(model) : null;
+            if (later != null) {
+                deferred.put(enchantment, later);
+                return;
+            }
+
             // Now we are ready to bake the custom model and add it to our own overrides.
-            BakedModel baked = baker.bake(model, BlockModelRotation.X0_Y0);
+            EnchantedBookEvents.Bake event = new EnchantedBookEvents.Bake(enchantment);
+            event.begin();
+            long bakeStart = System.nanoTime();
+            BakedModel baked = templates.bake(model);
+            profile.baked(enchantment, System.nanoTime() - bakeStart, baked != null);
+            event.finish(baked != null);
             if (baked == null) {
                 failed.add(enchantment);
                 return;
@@ -174,6 +233,14 @@ public final class EnchantedBookOverrides extends ItemOverrides {
             overrides.put(enchantment, baked);
         });
 
+        templates.report();
+
+        // the enchantments are validated along with the bake, so the event only marks it
+        EnchantedBookEvents.Validate validate = new EnchantedBookEvents.Validate();
+        validate.enchantments = generation.enchantments().size();
+        validate.missing = failed.size();
+        validate.commit();
+
         // log missing models
         if (!failed.isEmpty()) {
             NekosEnchantedBooks.LOGGER.warn("Missing, or failed to load, enchanted book models for the following enchantments: [{}]", String.join(", ", failed));
@@ -181,9 +248,27 @@ public final class EnchantedBookOverrides extends ItemOverrides {
             NekosEnchantedBooks.LOGGER.info("Successfully loaded enchanted book models for all available enchantments");
         }
 
+        profile.finish(System.nanoTime() - start, deferred != null);
+        report(profile);
         return overrides;
     }
 
+    /**
+     * Reports the given bake profile once the models are baked, or deferred if they are baked lazily. The summary goes
+     * to the log at debug level, while the full profile is written to {@link #PROFILE_FILE} as JSON, so that it can be
+     * compared between pack updates.
+     *
+     * @param profile The finished bake profile
+     */
+    private static void report(BakeProfile profile) {
+        NekosEnchantedBooks.LOGGER.debug(profile::summary);
+        try {
+            profile.write(PROFILE_FILE);
+        } catch (IOException e) {
+            NekosEnchantedBooks.LOGGER.warn("Failed to write the enchanted book bake profile", e);
+        }
+    }
+
     /**
      * Prepares all custom models to be used by NEBs. This includes resolving models so that their textures can be
      * referenced even though it doesn't exist in a model file that is directly tied to an item.
@@ -192,10 +277,14 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      * @param resolver     The model resolver
      */
     static void prepare(Iterable<Enchantment> enchantments, Consumer<ResourceLocation> resolver) {
+        EnchantedBookEvents.Discovery event = new EnchantedBookEvents.Discovery();
+        event.begin();
+        long start = System.nanoTime();
+        Generation generation = new Generation();
         enchantments.forEach(e -> {
             // save enchantment
             String enchantment = NekosEnchantedBooks.idOf(e);
-            PREPARED_ENCHANTMENTS.add(enchantment);
+            generation.enchantments().add(enchantment);
 
             // try and find model for enchantment
             ResourceLocation model = locationFrom(enchantment);
@@ -203,14 +292,116 @@ public final class EnchantedBookOverrides extends ItemOverrides {
                 return;
             }
 
-            PREPARED_MODELS.add(model);
+            generation.models().add(model);
             resolver.accept(model);
         });
+
+        event.models = generation.models().size();
+        event.commit();
+
+        // publish the new generation, releasing the old one
+        EnchantedBookOverrides.generation = generation;
+
+        // start the profile of this reload, nothing is skipped since models are only looked up for registered enchantments
+        BakeProfile profile = new BakeProfile();
+        profile.discovered(generation.models().size(), 0, System.nanoTime() - start);
+        EnchantedBookOverrides.profile = profile;
     }
 
 
     /* BAKED MODEL RESOLUTION */
 
+    /**
+     * Gets the resolution stats of the most recently baked overrides, which are shown by {@link EnchantedBookMetrics}.
+     *
+     * @return The resolution stats, or {@code null} if no overrides have been baked yet
+     */
+    static @Nullable ResolutionStats stats() {
+        @Nullable EnchantedBookOverrides current = EnchantedBookOverrides.current;
+        return current != null ? current.resolver.stats() : null;
+    }
+
+    /**
+     * Compiles the {@linkplain OverrideResolver#rebuild(Object, Iterable) lookup table} for the given enchantments, so
+     * that the hot path never has to compute a NEBs ID.
+     *
+     * @param enchantments The enchantments to cache the overrides of
+     */
+    private void cache(Iterable<Enchantment> enchantments) {
+        // lazy overrides are resolved through the resolution cache, otherwise the table would bake all of them at once
+        if (this.lazy) {
+            this.resolver.invalidate();
+            return;
+        }
+
+        this.resolver.rebuild(new RegistrySnapshot<>(enchantments), enchantments);
+    }
+
+    @Override
+    public int rawIdOf(RegistrySnapshot<Enchantment> registry, Enchantment enchantment) {
+        return registry.rawIdOf(enchantment);
+    }
+
+    /** Models are only named after the description of an enchantment in this version, so there is no key ID. */
+    @Override
+    public @Nullable String keyIdOf(Enchantment enchantment) {
+        return null;
+    }
+
+    @Override
+    public String descriptionIdOf(Enchantment enchantment) {
+        return NekosEnchantedBooks.idOf(enchantment);
+    }
+
+    @Override
+    public int maxLevelOf(Enchantment enchantment) {
+        return enchantment.getMaxLevel();
+    }
+
+    @Override
+    public @Nullable BakedModel overrideOf(String id) {
+        return this.bakedOverride(id);
+    }
+
+    /**
+     * Gets the baked override for the given NEBs ID. If {@linkplain NekosEnchantedBooksConfig#LAZY_BAKING lazy baking}
+     * is enabled and the override has not been baked yet, it is remapped from its template now. Each model is only ever
+     * baked once, and the lock is no longer taken once there is nothing left to bake.
+     *
+     * @param enchantment The NEBs ID of the enchantment
+     * @return The baked override, or {@code null} if the enchantment has none or its model failed to bake
+     */
+    private @Nullable BakedModel bakedOverride(@Nullable String enchantment) {
+        if (enchantment == null) return null;
+
+        @Nullable BakedModel override = this.overrides.get(enchantment);
+        if (override != null || !this.lazy) return override;
+
+        synchronized (this.unbaked) {
+            // another thread may have baked it, or it has no model at all
+            @Nullable EnchantedBookTemplateBaker.Deferred model = this.unbaked.remove(enchantment);
+            if (model == null) return this.overrides.get(enchantment);
+
+            EnchantedBookEvents.Bake event = new EnchantedBookEvents.Bake(enchantment);
+            event.begin();
+            try {
+                override = model.bake();
+            } catch (RuntimeException e) {
+                NekosEnchantedBooks.LOGGER.error("Failed to bake enchanted book model for enchantment {}", enchantment, e);
+            }
+            event.finish(override != null);
+
+            if (override != null) {
+                this.overrides.put(enchantment, override);
+            } else {
+                NekosEnchantedBooks.LOGGER.warn("Failed to load enchanted book model for enchantment {}", enchantment);
+            }
+
+            if (this.unbaked.isEmpty()) this.lazy = false;
+            return override;
+        }
+    }
+
     /**
      * Resolves the baked model based on the given stack's enchantment. If the enchantment is not found in the custom
      * overrides, we default back to the super method
@@ -226,42 +417,80 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      */
     @Override
     public @Nullable BakedModel resolve(BakedModel model, ItemStack stack, @Nullable ClientLevel level, @Nullable LivingEntity entity, int seed) {
-        for (Enchantment enchantment : getEnchantments(stack)) {
-            String key = NekosEnchantedBooks.idOf(enchantment);
-            if (this.overrides.containsKey(key)) {
-                return this.overrides.get(key);
-            }
+        ResolutionStats stats = this.resolver.stats();
+        boolean sampled = stats.sample(EnchantedBookEvents.recording());
+        long start = sampled ? System.nanoTime() : 0;
+
+        // books without enchantments can never have an override, so they skip the lookup entirely
+        ItemEnchantments enchantments = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
+        @Nullable BakedModel override = enchantments.isEmpty() ? null : this.overrideOf(enchantments);
+        if (sampled) {
+            long latency = System.nanoTime() - start;
+            stats.sampled(latency);
+            EnchantedBookEvents.resolved(enchantments.size(), override != null, latency);
+        }
+
+        if (override != null) {
+            stats.resolvedOverride();
+            return override;
+        }
+
+        if (enchantments.isEmpty()) {
+            stats.resolvedEmpty();
+        } else {
+            stats.resolvedBase();
         }
 
         return this.base.resolve(model, stack, level, entity, seed);
     }
 
     /**
-     * Gets the enchantment from the given stack. If the stack has no enchantments, then this method returns null. If
-     * the stack has multiple enchantments, then the first key found is what will be used.
+     * Gets the baked override for the given stored enchantments component. Since the component is immutable, the result
+     * is {@linkplain OverrideResolver#resolve(Object, Function) memoized} by the identity of the component, so repeated
+     * renders of the same stack only cost a single lookup.
      *
-     * @param stack The stack to get the enchantment from
-     * @return The enchantment of the stack, or {@code null} if it does not have any
+     * @param enchantments The stored enchantments of the stack
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
      */
-    private static Iterable<Enchantment> getEnchantments(ItemStack stack) {
-        ItemEnchantments enchantments = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
-        return () -> new Iterator<>() {
-            private final Iterator<Holder<Enchantment>> iterator = enchantments.keySet().iterator();
+    private @Nullable BakedModel overrideOf(ItemEnchantments enchantments) {
+        return this.resolver.resolve(enchantments, this.finder);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+    /**
+     * Walks the given stored enchantments on a memo miss. It is bound to {@link #finder} once, so that resolving a
+     * stack does not allocate a new lambda every time.
+     *
+     * @param enchantments The stored enchantments of the stack
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
+     */
+    private @Nullable BakedModel find(ItemEnchantments enchantments) {
+        // the cursor is only reused on the render thread, anything else gets its own
+        OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> cursor = RenderSystem.isOnRenderThread() ? this.cursor : this.newCursor();
+        return cursor.find(enchantments);
+    }
 
-            @Override
-            public Enchantment next() {
-                return iterator.next().get();
-            }
+    /**
+     * Creates a cursor that walks the enchantments of a stored enchantments component. The enchantments are walked with
+     * {@link java.util.Set#forEach(Consumer)} on the key set of the backing map, which is made accessible by the access
+     * transformer. The map caches its key set and iterates its own backing arrays, so unlike
+     * {@link ItemEnchantments#keySet()}, which wraps the key set in a new unmodifiable view every time, nothing has to
+     * be allocated for each stack.
+     *
+     * @return The new cursor
+     */
+    private OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> newCursor() {
+        return new OverrideCursor<>((enchantments, cursor) -> enchantments.enchantments.keySet().forEach(cursor), (enchantments, holder) -> this.resolver.overrideOf(holder.get(), this.resolver.isLeveled() ? enchantments.getLevel(holder.get()) : 0));
+    }
 
-            @Override
-            public void forEachRemaining(Consumer<? super Enchantment> action) {
-                iterator.forEachRemaining(holder -> action.accept(holder.get()));
-            }
-        };
+    /**
+     * The state of a single resource reload.
+     *
+     * @param models       The models that were found when the models were prepared
+     * @param enchantments The NEBs IDs of every enchantment that was registered when the models were prepared
+     */
+    private record Generation(Set<ResourceLocation> models, Set<String> enchantments) {
+        private Generation() {
+            this(new HashSet<>(), new HashSet<>());
+        }
     }
 }
@@ -4,9 +4,14 @@ import net.minecraft.Util;
 import net.minecraft.data.DataGenerator;
 import net.minecraft.world.item.enchantment.Enchantment;
 import net.minecraftforge.client.event.ModelEvent;
+import net.minecraftforge.client.event.RegisterClientCommandsEvent;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.data.event.GatherDataEvent;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
+import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.registries.ForgeRegistries;
 import org.apache.logging.log4j.LogManager;
@@ -46,12 +51,20 @@ public class NekosEnchantedBooks {
 
     public NekosEnchantedBooks() {
         FMLJavaModLoadingContext context = FMLJavaModLoadingContext.get();
+        ModLoadingContext.get().registerConfig(ModConfig.Type.CLIENT, NekosEnchantedBooksConfig.SPEC);
 
         this.setupListeners(context.getModEventBus());
     }
 
     private void setupListeners(IEventBus modBus) {
+        IEventBus forgeBus = MinecraftForge.EVENT_BUS;
+
         modBus.<ModelEvent.RegisterAdditional>addListener(event -> EnchantedBookOverrides.prepare(ForgeRegistries.ENCHANTMENTS, event::register));
+        forgeBus.<RegisterClientCommandsEvent>addListener(event -> EnchantedBookMetrics.register(event.getDispatcher()));
+        forgeBus.addListener(EnchantedBookMetrics::debugText);
+        forgeBus.<TickEvent.ClientTickEvent>addListener(event -> {
+            if (event.phase == TickEvent.Phase.END) EnchantedBookMetrics.tick();
+        });
         modBus.addListener(this::gatherData);
     }
 
@@ -0,0 +1,61 @@
+package org.infernalstudios.nebs;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+
+/**
+ * <h1>Neko's Enchanted Books Config</h1>
+ * This is the client config for NEBs. Every option in here tweaks how NEBs loads its enchanted book models, or what it
+ * reports about them, and the defaults always match how NEBs behaves without a config.
+ *
+ * @since 2.0.4
+ */
+final class NekosEnchantedBooksConfig {
+    static final ForgeConfigSpec SPEC;
+
+    /** Whether enchanted book models should be baked the first time they are needed, instead of all at once. */
+    static final ForgeConfigSpec.BooleanValue LAZY_BAKING;
+    /** Whether enchanted book models that only swap their texture should reuse the geometry of a template. */
+    static final ForgeConfigSpec.BooleanValue TEMPLATE_BAKING;
+    /** Whether a summary of the resolution stats should be shown on the debug overlay. */
+    static final ForgeConfigSpec.BooleanValue DEBUG_OVERLAY;
+
+    static {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+
+        builder.push("baking");
+        LAZY_BAKING = builder
+            .comment("Bake enchanted book models the first time they are rendered, instead of on every resource reload.",
+                     "Only one template per texture shape is baked during the reload, and each model is remapped from it when first seen.",
+                     "Models that do more than swap the texture of the base enchanted book model are always baked during the reload.")
+            .define("lazy", false);
+        TEMPLATE_BAKING = builder
+            .comment("Reuse the baked geometry of enchanted book models whose textures share the same transparent pixels.",
+                     "Models that do more than swap the texture of the base enchanted book model are always baked normally.")
+            .define("template", false);
+        builder.pop();
+
+        builder.push("debug");
+        DEBUG_OVERLAY = builder
+            .comment("Show how enchanted books are resolved, and how long it takes, on the debug overlay (F3).",
+                     "Stats are only collected while the debug overlay is open, or between /nebs stats start and /nebs stats stop.",
+                     "The same stats, and more, are printed by the client command /nebs stats.")
+            .define("overlay", false);
+        builder.pop();
+
+        SPEC = builder.build();
+    }
+
+    /**
+     * Gets the value of the given option. Models may be baked before Forge has loaded the client config, in which case
+     * the default value of the option is used instead.
+     *
+     * @param value The option to get the value of
+     * @param <T>   The type of the option
+     * @return The value of the option
+     */
+    static <T> T get(ForgeConfigSpec.ConfigValue<T> value) {
+        return SPEC.isLoaded() ? value.get() : value.getDefault();
+    }
+
+    private NekosEnchantedBooksConfig() { }
+}
@@ -1,5 +1,7 @@
 package org.infernalstudios.nebs;
 
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.block.model.BakedOverrides;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
@@ -11,19 +13,33 @@ import net.minecraft.client.resources.model.ModelBaker;
 import net.minecraft.client.resources.model.ModelState;
 import net.minecraft.client.resources.model.UnbakedModel;
 import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
 import net.minecraft.core.component.DataComponents;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.PackType;
+import net.minecraft.server.packs.resources.ResourceManager;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.enchantment.Enchantment;
 import net.minecraft.world.item.enchantment.ItemEnchantments;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.infernalstudios.nebs.core.BakeProfile;
+import org.infernalstudios.nebs.core.EnchantmentAdapter;
+import org.infernalstudios.nebs.core.OverrideCursor;
+import org.infernalstudios.nebs.core.OverrideModels;
+import org.infernalstudios.nebs.core.OverrideResolver;
+import org.infernalstudios.nebs.core.ResolutionStats;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Consumer;
@@ -49,6 +65,9 @@ import java.util.function.Function;
  *         {@code minecraft:item/enchanted_book} instead of {@code minecraft:item/generated}, so any custom additions
  *         made to the base model are reflected in yours.</li>
  *     </ul>
+ *     <li>Optionally, a model can be given for a specific level of an enchantment by adding the level as another folder
+ *     separation. For example, {@code assets/nebs/models/item/minecraft/sharpness/5.json} is used for Sharpness V,
+ *     while every other level of Sharpness keeps using {@code assets/nebs/models/item/minecraft/sharpness.json}.</li>
  *     <li>The placement of the texture you would like to use does not matter, as long as it is properly referenced in
  *     your model file. If you look at any of NEBs's own models as an example, you will see that the {@code layer0}
  *     texture simply points to a texture image that is in the same structure as the model files are. This makes it easy
@@ -74,7 +93,7 @@ import java.util.function.Function;
  * @since 2.0.0
  */
 @SuppressWarnings("deprecation") // We are wrapping things that use deprecated methods
-public final class EnchantedBookOverrides extends BakedOverrides {
+public final class EnchantedBookOverrides extends BakedOverrides implements EnchantmentAdapter<Registry<Enchantment>, Holder<Enchantment>, BakedModel> {
     /** The resource location for the vanilla {@linkplain net.minecraft.world.item.Items#ENCHANTED_BOOK enchanted book}. */
     static final ResourceLocation ENCHANTED_BOOK_LOCATION = ResourceLocation.withDefaultNamespace("enchanted_book");
     /** The name of the vanilla enchanted book model, used as a base for NEBs own models. */
@@ -88,11 +107,27 @@ public final class EnchantedBookOverrides extends BakedOverrides {
         return model.getPath().substring("item/".length()).replace("/", ".");
     }
 
-    private static final Set<String> TEXTURED_ENCHANTMENTS = new HashSet<>();
-    private static final Set<ResourceLocation> PREPARED_MODELS = new HashSet<>();
+    /**
+     * The models prepared for the latest resource reload. A new generation is built every time models are prepared and
+     * replaces the old one as a whole, so nothing prepared for an older reload is ever baked or validated again.
+     */
+    private static volatile Generation generation = new Generation();
+    /** The bake profile of the latest resource reload, started when models are prepared and reported once they are baked. */
+    private static volatile BakeProfile profile = new BakeProfile();
+    /** The file the {@linkplain #report(BakeProfile) bake profile} of every resource reload is written to. */
+    private static final Path PROFILE_FILE = FMLPaths.GAMEDIR.get().resolve("logs").resolve("nebs-bake-profile.json");
+
+    /** The enchantment registry of the last joined world, kept so that a resource reload can rebuild the lookup table. */
+    private static volatile @Nullable Registry<Enchantment> knownEnchantments;
+    /** The most recently baked overrides, whose lookup table is rebuilt when the enchantment registry changes. */
+    private static volatile @Nullable EnchantedBookOverrides current;
 
     private final BakedModel base;
     private final Map<String, BakedModel> overrides;
+    /** Resolves the overrides of the stored enchantments, through the lookup table and caches shared by every version. */
+    private final OverrideResolver<Registry<Enchantment>, Holder<Enchantment>, BakedModel> resolver;
+    private final OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> cursor = this.newCursor();
+    private final Function<ItemEnchantments, BakedModel> finder = this::find;
 
     @SuppressWarnings("unused") // ItemModelCoreMod
     public static BakedModel of(BakedModel base, ResourceLocation location, ModelBaker baker, Function<Material, TextureAtlasSprite> spriteGetter) {
@@ -132,7 +167,7 @@ public final class EnchantedBookOverrides extends BakedOverrides {
     /**
      * This constructor follows up on the baking of the enchanted book item model. It calls the
      * {@link #bakeOverrides(ModelBaker)} method, where existing models are queried for automatic model loading. The
-     * enchantments are later validated in {@link #validate(Iterable)} when a world is loaded, since enchantments are a
+     * enchantments are later validated in {@link #validate(Registry)} when a world is loaded, since enchantments are a
      * data pack registry. The process of taking advantage of automatic model loading was described in the documentation
      * for the class in {@link EnchantedBookOverrides}.
      *
@@ -144,6 +179,9 @@ public final class EnchantedBookOverrides extends BakedOverrides {
     public EnchantedBookOverrides(BakedModel base, ModelBaker baker) {
         this.base = base;
         this.overrides = bakeOverrides(baker);
+        this.resolver = new OverrideResolver<>(this, OverrideResolver.anyLevel(this.overrides.keySet()));
+        if (knownEnchantments != null) this.cache(knownEnchantments);
+        current = this;
     }
 
     /**
@@ -153,20 +191,81 @@ public final class EnchantedBookOverrides extends BakedOverrides {
      * @return The map of enchantment IDs to their respective baked models
      */
     private static Map<String, BakedModel> bakeOverrides(ModelBaker baker) {
-        Map<String, BakedModel> overrides = new HashMap<>(PREPARED_MODELS.size());
-        PREPARED_MODELS.forEach(model -> {
+        Generation generation = EnchantedBookOverrides.generation;
+        BakeProfile profile = EnchantedBookOverrides.profile;
+        long start = System.nanoTime();
+        Set<String> textured = new HashSet<>();
+        Map<String, BakedModel> overrides = new HashMap<>(generation.models().size());
+        generation.models().forEach(model -> {
             String enchantment = idFromModel(model);
-            BakedModel baked = Objects.requireNonNull(baker.bake(model, BlockModelRotation.X0_Y0));
+            EnchantedBookEvents.Bake event = new EnchantedBookEvents.Bake(enchantment);
+            event.begin();
+            long bakeStart = System.nanoTime();
+            @Nullable BakedModel baked = baker.bake(model, BlockModelRotation.X0_Y0);
+            profile.baked(enchantment, System.nanoTime() - bakeStart, baked != null);
+            event.finish(baked != null);
+
+            // null model? something went wrong, so leave it to validation to report
+            if (baked == null) return;
 
-            TEXTURED_ENCHANTMENTS.add(enchantment);
+            textured.add(enchantment);
             overrides.put(enchantment, baked);
         });
+
+        // publish the textured enchantments, so validation never sees them half-built
+        EnchantedBookOverrides.generation = new Generation(generation.models(), Set.copyOf(textured));
+        profile.finish(System.nanoTime() - start, false);
+        report(profile);
         return overrides;
     }
 
+    /**
+     * Reports the given bake profile once the models are baked. The summary goes to the log at debug
+     * level, while the full profile is written to {@link #PROFILE_FILE} as JSON, so that it can be compared between pack
+     * updates.
+     *
+     * @param profile The finished bake profile
+     */
+    private static void report(BakeProfile profile) {
+        NekosEnchantedBooks.LOGGER.debug(profile::summary);
+        try {
+            profile.write(PROFILE_FILE);
+        } catch (IOException e) {
+            NekosEnchantedBooks.LOGGER.warn("Failed to write the enchanted book bake profile", e);
+        }
+    }
+
     @Deprecated // this is a stop-gap used in ModelDiscoveryCoreMod until ModelEvent.RegisterAdditional is re-added
     public static void prepare(Map<ResourceLocation, UnbakedModel> models, UnbakedModel.Resolver resolver) {
-        prepare(resolver::resolve, models.keySet());
+        EnchantedBookEvents.Discovery event = new EnchantedBookEvents.Discovery();
+        event.begin();
+        long start = System.nanoTime();
+        prepare(resolver::resolve, listModels(models.keySet()), start);
+
+        BakeProfile profile = EnchantedBookOverrides.profile;
+        event.models = profile.discovered();
+        event.pruned = profile.skipped();
+        event.commit();
+    }
+
+    /**
+     * Lists the models that belong to NEBs. Instead of going through every model the game has discovered, which can
+     * easily be tens of thousands, each resource pack is asked for the {@code models/item} folder in our namespace only.
+     * This keeps the work proportional to the number of NEBs models. Only models the game has discovered are returned.
+     *
+     * @param discovered All models that were discovered by the game
+     * @return The discovered models in the NEBs namespace
+     */
+    private static Set<ResourceLocation> listModels(Set<ResourceLocation> discovered) {
+        Set<ResourceLocation> models = new HashSet<>();
+        Minecraft.getInstance().getResourceManager().listPacks().forEach(pack -> pack.listResources(PackType.CLIENT_RESOURCES, NekosEnchantedBooks.MOD_ID, "models/item", (file, resource) -> {
+            if (!file.getPath().endsWith(".json")) return;
+
+            ResourceLocation model = file.withPath(path -> path.substring("models/".length(), path.length() - ".json".length()));
+            if (discovered.contains(model)) models.add(model);
+        }));
+
+        return models;
     }
 
     /**
@@ -175,26 +274,128 @@ public final class EnchantedBookOverrides extends BakedOverrides {
      *
      * @param resolver The model resolver
      * @param models   All models that were discovered by the game
+     * @param start    The {@linkplain System#nanoTime() time} the discovery of the models started at, for the bake
+     *                 profile
      */
-    static void prepare(Consumer<ResourceLocation> resolver, Set<ResourceLocation> models) {
+    static void prepare(Consumer<ResourceLocation> resolver, Set<ResourceLocation> models, long start) {
+        Set<ResourceLocation> prepared = new HashSet<>();
+        Set<String> pruned = new TreeSet<>();
+        Set<String> registered = registeredIds();
+        ResourceManager resources = Minecraft.getInstance().getResourceManager();
         for (ResourceLocation model : models) {
             if (model.getNamespace().equals(NekosEnchantedBooks.MOD_ID)) {
+                // skip bundled models for mods that are not loaded
+                String enchantment = idFromModel(model);
+                if (!shouldPrepare(enchantment, model.withPath(path -> "models/" + path + ".json"), resources, registered)) {
+                    pruned.add(enchantment);
+                    continue;
+                }
+
                 // save enchantment
-                PREPARED_MODELS.add(model);
+                prepared.add(model);
 
                 // resolve model to load textures
                 resolver.accept(model);
             }
         }
+
+        if (!pruned.isEmpty())
+            NekosEnchantedBooks.LOGGER.info("Pruned {} enchanted book models bundled with NEBs for mods that are not loaded: [{}]", pruned.size(), String.join(", ", pruned));
+
+        // publish the new generation, releasing the old one
+        EnchantedBookOverrides.generation = new Generation(Set.copyOf(prepared), Set.of());
+
+        // start the profile of this reload
+        BakeProfile profile = new BakeProfile();
+        profile.discovered(prepared.size(), pruned.size(), System.nanoTime() - start);
+        EnchantedBookOverrides.profile = profile;
     }
 
-    static void validate(Iterable<Enchantment> enchantments) {
-        Set<String> missing = new TreeSet<>();
-        enchantments.forEach(enchantment -> {
-            @Nullable String id = NekosEnchantedBooks.idOf(enchantment);
-            if (id != null && !TEXTURED_ENCHANTMENTS.contains(id) && !NekosEnchantedBooks.NON_ENCHANTMENTS.contains(id))
-                missing.add(id);
-        });
+    /**
+     * Checks if the model for the given NEBs ID should be prepared. Only the models bundled with NEBs itself are ever
+     * pruned, so that they are never resolved, stitched or baked. The first part of the ID is the namespace of the
+     * enchantment, which is almost always the ID of the mod that registers it. A bundled model is only pruned if that
+     * mod is not loaded, and the model is always kept if:
+     * <ul>
+     *     <li>its namespace is {@linkplain NekosEnchantedBooksConfig#KEPT_NAMESPACES kept in the config},</li>
+     *     <li>it matches an enchantment of the {@linkplain #registeredIds() last joined world}, such as one from a data
+     *     pack,</li>
+     *     <li>or a resource pack provides or overrides it, since packs ship models on purpose.</li>
+     * </ul>
+     *
+     * @param enchantment The NEBs ID of the enchantment
+     * @param file        The model file
+     * @param resources   The resource manager the model was found in
+     * @param registered  The NEBs IDs of the registered enchantments
+     * @return If the model should be prepared
+     */
+    private static boolean shouldPrepare(String enchantment, ResourceLocation file, ResourceManager resources, Set<String> registered) {
+        return OverrideModels.shouldPrepare(enchantment, namespace -> ModList.get().isLoaded(namespace) || NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.KEPT_NAMESPACES).contains(namespace), registered, () -> isBundled(file, resources));
+    }
+
+    /**
+     * Checks if the given model file is only provided by the NEBs mod file itself, and not by any resource pack.
+     *
+     * @param file      The model file
+     * @param resources The resource manager the model was found in
+     * @return If the model is bundled with NEBs
+     */
+    private static boolean isBundled(ResourceLocation file, ResourceManager resources) {
+        // a resource pack that provides or overrides the model adds its own entry to the stack
+        if (resources.getResourceStack(file).size() != 1) return false;
+
+        Path bundled = ModList.get().getModFileById(NekosEnchantedBooks.MOD_ID).getFile().findResource("assets", file.getNamespace(), file.getPath());
+        return Files.exists(bundled);
+    }
+
+    /**
+     * Gets the NEBs IDs of every enchantment in the {@linkplain #knownEnchantments enchantment registry of the last
+     * joined world}, by both their registry key and their description, so that their models are never pruned.
+     *
+     * @return The NEBs IDs of the registered enchantments, or an empty set if no world has been joined yet
+     */
+    private static Set<String> registeredIds() {
+        @Nullable Registry<Enchantment> enchantments = knownEnchantments;
+        if (enchantments == null) return Set.of();
+
+        return OverrideModels.registeredIds(enchantments, enchantment -> keyIdOf(enchantments, enchantment), NekosEnchantedBooks::idOf);
+    }
+
+    /**
+     * Gets the NEBs ID of the given enchantment derived from its key in the given registry.
+     *
+     * @param enchantments The enchantment registry
+     * @param enchantment  The enchantment to get the NEBs ID of
+     * @return The NEBs ID, or {@code null} if the enchantment is not in the registry
+     */
+    private static @Nullable String keyIdOf(Registry<Enchantment> enchantments, Enchantment enchantment) {
+        return enchantments.getResourceKey(enchantment).map(NekosEnchantedBooks::idOf).orElse(null);
+    }
+
+    /**
+     * Gets the resolution stats of the most recently baked overrides, which are shown by {@link EnchantedBookMetrics}.
+     *
+     * @return The resolution stats, or {@code null} if no overrides have been baked yet
+     */
+    static @Nullable ResolutionStats stats() {
+        @Nullable EnchantedBookOverrides current = EnchantedBookOverrides.current;
+        return current != null ? current.resolver.stats() : null;
+    }
+
+    static void validate(Registry<Enchantment> enchantments) {
+        EnchantedBookEvents.Validate event = new EnchantedBookEvents.Validate();
+        event.begin();
+
+        // the registry has changed, so the lookup table needs to be rebuilt
+        knownEnchantments = enchantments;
+        if (current != null) current.cache(enchantments);
+
+        Generation generation = EnchantedBookOverrides.generation;
+        Set<String> missing = OverrideModels.missing(enchantments, enchantment -> keyIdOf(enchantments, enchantment), NekosEnchantedBooks::idOf, generation.textured(), NekosEnchantedBooks.NON_ENCHANTMENTS);
+
+        event.enchantments = enchantments.size();
+        event.missing = missing.size();
+        event.commit();
 
         if (!missing.isEmpty()) {
             NekosEnchantedBooks.LOGGER.warn("Missing, or failed to load, enchanted book models for the following enchantments: [{}]", String.join(", ", missing));
@@ -206,6 +407,46 @@ public final class EnchantedBookOverrides extends BakedOverrides {
 
     /* BAKED MODEL RESOLUTION */
 
+    /**
+     * Compiles the {@linkplain OverrideResolver#rebuild(Object, Iterable) lookup table} for the given enchantment
+     * registry, so that the hot path never has to compute a NEBs ID.
+     *
+     * @param enchantments The enchantment registry to build the table for
+     */
+    private void cache(Registry<Enchantment> enchantments) {
+        List<Holder<Enchantment>> holders = new ArrayList<>();
+        for (Enchantment enchantment : enchantments) {
+            holders.add(enchantments.wrapAsHolder(enchantment));
+        }
+
+        this.resolver.rebuild(enchantments, holders);
+    }
+
+    @Override
+    public int rawIdOf(Registry<Enchantment> registry, Holder<Enchantment> enchantment) {
+        return registry.getId(enchantment.value());
+    }
+
+    @Override
+    public @Nullable String keyIdOf(Holder<Enchantment> enchantment) {
+        return enchantment.unwrapKey().map(NekosEnchantedBooks::idOf).orElse(null);
+    }
+
+    @Override
+    public @Nullable String descriptionIdOf(Holder<Enchantment> enchantment) {
+        return NekosEnchantedBooks.idOf(enchantment.value());
+    }
+
+    @Override
+    public int maxLevelOf(Holder<Enchantment> enchantment) {
+        return enchantment.value().getMaxLevel();
+    }
+
+    @Override
+    public @Nullable BakedModel overrideOf(String id) {
+        return this.overrides.get(id);
+    }
+
     /**
      * Resolves the baked model based on the given stack's enchantment. If the enchantment is not found in the custom
      * overrides, we default back to the super method
@@ -220,42 +461,80 @@ public final class EnchantedBookOverrides extends BakedOverrides {
      */
     @Override
     public @Nullable BakedModel findOverride(ItemStack stack, @Nullable ClientLevel level, @Nullable LivingEntity entity, int seed) {
-        for (Enchantment enchantment : getEnchantments(stack)) {
-            @Nullable String key = NekosEnchantedBooks.idOf(enchantment);
-            if (this.overrides.containsKey(key)) {
-                return this.overrides.get(key);
-            }
+        ResolutionStats stats = this.resolver.stats();
+        boolean sampled = stats.sample(EnchantedBookEvents.recording());
+        long start = sampled ? System.nanoTime() : 0;
+
+        // books without enchantments can never have an override, so they skip the lookup entirely
+        ItemEnchantments enchantments = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
+        @Nullable BakedModel override = enchantments.isEmpty() ? null : this.overrideOf(enchantments);
+        if (sampled) {
+            long latency = System.nanoTime() - start;
+            stats.sampled(latency);
+            EnchantedBookEvents.resolved(enchantments.size(), override != null, latency);
+        }
+
+        if (override != null) {
+            stats.resolvedOverride();
+            return override;
+        }
+
+        if (enchantments.isEmpty()) {
+            stats.resolvedEmpty();
+        } else {
+            stats.resolvedBase();
         }
 
         return this.base.overrides().findOverride(stack, level, entity, seed);
     }
 
     /**
-     * Gets the enchantment from the given stack. If the stack has no enchantments, then this method returns null. If
-     * the stack has multiple enchantments, then the first key found is what will be used.
+     * Gets the baked override for the given stored enchantments component. Since the component is immutable, the result
+     * is {@linkplain OverrideResolver#resolve(Object, java.util.function.Function) memoized} by the identity of the
+     * component, so repeated renders of the same stack only cost a single lookup.
      *
-     * @param stack The stack to get the enchantment from
-     * @return The enchantment of the stack, or {@code null} if it does not have any
+     * @param enchantments The stored enchantments of the stack
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
      */
-    private static Iterable<Enchantment> getEnchantments(ItemStack stack) {
-        ItemEnchantments enchantments = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
-        return () -> new Iterator<>() {
-            private final Iterator<Holder<Enchantment>> iterator = enchantments.keySet().iterator();
+    private @Nullable BakedModel overrideOf(ItemEnchantments enchantments) {
+        return this.resolver.resolve(enchantments, this.finder);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+    /**
+     * Walks the given stored enchantments on a memo miss. It is bound to {@link #finder} once, so that resolving a
+     * stack does not allocate a new lambda every time.
+     *
+     * @param enchantments The stored enchantments of the stack
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
+     */
+    private @Nullable BakedModel find(ItemEnchantments enchantments) {
+        // the cursor is only reused on the render thread, anything else gets its own
+        OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> cursor = RenderSystem.isOnRenderThread() ? this.cursor : this.newCursor();
+        return cursor.find(enchantments);
+    }
 
-            @Override
-            public Enchantment next() {
-                return iterator.next().get();
-            }
+    /**
+     * Creates a cursor that walks the enchantments of a stored enchantments component. The enchantments are walked with
+     * {@link java.util.Set#forEach(Consumer)} on the key set of the backing map, which is made accessible by the access
+     * transformer. The map caches its key set and iterates its own backing arrays, so unlike
+     * {@link ItemEnchantments#keySet()}, which wraps the key set in a new unmodifiable view every time, nothing has to
+     * be allocated for each stack.
+     *
+     * @return The new cursor
+     */
+    private OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> newCursor() {
+        return new OverrideCursor<>((enchantments, cursor) -> enchantments.enchantments.keySet().forEach(cursor), (enchantments, holder) -> this.resolver.overrideOf(holder, this.resolver.isLeveled() ? enchantments.getLevel(holder) : 0));
+    }
 
-            @Override
-            public void forEachRemaining(Consumer<? super Enchantment> action) {
-                iterator.forEachRemaining(holder -> action.accept(holder.get()));
-            }
-        };
+    /**
+     * The state of a single resource reload. Generations are immutable, so that they can be read from any thread.
+     *
+     * @param models   The models that were found when the models were prepared
+     * @param textured The NEBs IDs of every enchantment whose model has been baked
+     */
+    private record Generation(Set<ResourceLocation> models, Set<String> textured) {
+        private Generation() {
+            this(Set.of(), Set.of());
+        }
     }
 }
@@ -4,15 +4,21 @@ import net.minecraft.Util;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.data.DataGenerator;
 import net.minecraft.network.chat.contents.TranslatableContents;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.enchantment.Enchantment;
 import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.client.event.RegisterClientCommandsEvent;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.data.event.GatherDataEvent;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.infernalstudios.nebs.core.OverrideIds;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashSet;
@@ -46,11 +52,25 @@ public class NekosEnchantedBooks {
         if (!(enchantment.description().getContents() instanceof TranslatableContents contents))
             return null;
 
-        String id = contents.getKey();
-        return id.startsWith("enchantment.") ? id.substring("enchantment.".length()) : id;
+        return OverrideIds.fromDescription(contents.getKey());
+    }
+
+    /**
+     * Gets the NEBs ID of the given enchantment key, which is its namespace and path joined by a point, with every folder
+     * separation in the path also replaced by a point. For most enchantments, this is the same as the
+     * {@linkplain #idOf(Enchantment) ID of its description}, but unlike it, this also works for enchantments from data
+     * packs that use a literal description or a translation key that does not follow the usual format.
+     *
+     * @param key The registry key of the enchantment to get the ID of
+     * @return The NEBs ID of the enchantment
+     */
+    static String idOf(ResourceKey<Enchantment> key) {
+        ResourceLocation location = key.location();
+        return OverrideIds.fromKey(location.getNamespace(), location.getPath());
     }
 
     public NekosEnchantedBooks(FMLJavaModLoadingContext context) {
+        context.registerConfig(ModConfig.Type.CLIENT, NekosEnchantedBooksConfig.SPEC);
         this.setupListeners(context.getModEventBus());
     }
 
@@ -59,6 +79,9 @@ public class NekosEnchantedBooks {
 
         //modBus.<ModelEvent.RegisterAdditional>addListener(event -> EnchantedBookOverrides.prepare(event::register, event.getInputModels()));
         forgeBus.<ClientPlayerNetworkEvent.LoggingIn>addListener(event -> EnchantedBookOverrides.validate(event.getPlayer().registryAccess().lookupOrThrow(Registries.ENCHANTMENT)));
+        forgeBus.<RegisterClientCommandsEvent>addListener(event -> EnchantedBookMetrics.register(event.getDispatcher()));
+        forgeBus.addListener(EnchantedBookMetrics::debugText);
+        forgeBus.<TickEvent.ClientTickEvent.Post>addListener(event -> EnchantedBookMetrics.tick());
         modBus.addListener(this::gatherData);
     }
 
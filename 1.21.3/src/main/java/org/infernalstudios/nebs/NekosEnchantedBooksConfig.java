@@ -0,0 +1,57 @@
+package org.infernalstudios.nebs;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+
+import java.util.List;
+
+/**
+ * <h1>Neko's Enchanted Books Config</h1>
+ * This is the client config for NEBs. Every option in here tweaks how NEBs loads its enchanted book models, or what it
+ * reports about them, and the defaults always match how NEBs behaves without a config.
+ *
+ * @since 2.0.4
+ */
+final class NekosEnchantedBooksConfig {
+    static final ForgeConfigSpec SPEC;
+
+    /** The namespaces whose enchanted book models are always loaded, even if no mod with that ID is loaded. */
+    static final ForgeConfigSpec.ConfigValue<List<? extends String>> KEPT_NAMESPACES;
+    /** Whether a summary of the resolution stats should be shown on the debug overlay. */
+    static final ForgeConfigSpec.BooleanValue DEBUG_OVERLAY;
+
+    static {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+
+        builder.push("baking");
+        KEPT_NAMESPACES = builder
+            .comment("Enchanted book models bundled with NEBs are only loaded for mods that are loaded, where the mod ID is the first part of the NEBs ID.",
+                     "Models from resource packs, and models for enchantments of the last joined world, are always loaded.",
+                     "Add any namespaces here whose models should always be loaded, such as enchantments from data packs or those registered under a different mod ID.")
+            .defineListAllowEmpty(List.of("keptNamespaces"), List.of(), namespace -> namespace instanceof String);
+        builder.pop();
+
+        builder.push("debug");
+        DEBUG_OVERLAY = builder
+            .comment("Show how enchanted books are resolved, and how long it takes, on the debug overlay (F3).",
+                     "Stats are only collected while the debug overlay is open, or between /nebs stats start and /nebs stats stop.",
+                     "The same stats, and more, are printed by the client command /nebs stats.")
+            .define("overlay", false);
+        builder.pop();
+
+        SPEC = builder.build();
+    }
+
+    /**
+     * Gets the value of the given option. Models may be baked before Forge has loaded the client config, in which case
+     * the default value of the option is used instead.
+     *
+     * @param value The option to get the value of
+     * @param <T>   The type of the option
+     * @return The value of the option
+     */
+    static <T> T get(ForgeConfigSpec.ConfigValue<T> value) {
+        return SPEC.isLoaded() ? value.get() : value.getDefault();
+    }
+
+    private NekosEnchantedBooksConfig() { }
+}
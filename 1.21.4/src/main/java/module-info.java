@@ -1,14 +1,22 @@
 module org.infernalstudios.nebs {
     exports org.infernalstudios.nebs;
+    exports org.infernalstudios.nebs.core;
 
     // forge
     requires net.minecraftforge.javafmlmod;    // @Mod
+    requires net.minecraftforge.fmlcore;       // config, mod list
+    requires net.minecraftforge.fmlloader;     // game directory
+    requires net.minecraftforge.forgespi;      // bundled resources
     requires net.minecraftforge.forge;         // forge
     requires net.minecraftforge.eventbus;      // event bus
 
     // helper libraries
     requires org.apache.logging.log4j;         // logging
+    requires com.google.common;                // weak-keyed memo of resolved overrides
+    requires it.unimi.dsi.fastutil;            // level lookup of resolved overrides
     requires com.google.gson;                  // overrides.json for the data generator
+    requires brigadier;                        // client commands
+    requires jdk.jfr;                          // flight recorder events
 
     // annotations
     requires static org.jetbrains.annotations; // @Nullable
@@ -0,0 +1,112 @@
+package org.infernalstudios.nebs;
+
+import com.mojang.brigadier.CommandDispatcher;
+import net.minecraft.client.Minecraft;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraftforge.client.event.CustomizeGuiOverlayEvent;
+import org.infernalstudios.nebs.core.LatencyHistogram;
+import org.infernalstudios.nebs.core.ResolutionStats;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+
+/**
+ * <h1>Enchanted Book Metrics</h1>
+ * This exposes the {@linkplain ResolutionStats resolution stats} of the enchanted book overrides in game, so that NEBs
+ * can be ruled in or out as the cause of frame time spikes in GUIs full of books. The stats are printed by the client
+ * command {@code /nebs stats} and reset by {@code /nebs stats reset}. If
+ * {@linkplain NekosEnchantedBooksConfig#DEBUG_OVERLAY enabled in the config}, a summary is also shown on the debug
+ * overlay.
+ * <p>
+ * Stats are only {@linkplain ResolutionStats#collect(boolean) collected} while they are in use, which is between
+ * {@code /nebs stats start} and {@code /nebs stats stop}, or while the summary is shown on the debug overlay. Otherwise,
+ * resolving a book counts nothing at all.
+ * <p>
+ * The stats belong to the baked overrides, so they start over on every resource reload.
+ *
+ * @since 2.0.4
+ */
+final class EnchantedBookMetrics {
+    /** If stats were started by {@code /nebs stats start}, so that they are collected even without the debug overlay. */
+    private static boolean started = false;
+
+    /**
+     * Registers the {@code /nebs stats} client command.
+     *
+     * @param dispatcher The client command dispatcher
+     */
+    static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal(NekosEnchantedBooks.MOD_ID)
+            .then(Commands.literal("stats")
+                .executes(context -> report(context.getSource()))
+                .then(Commands.literal("start")
+                    .executes(context -> start(context.getSource(), true)))
+                .then(Commands.literal("stop")
+                    .executes(context -> start(context.getSource(), false)))
+                .then(Commands.literal("reset")
+                    .executes(context -> reset(context.getSource())))));
+    }
+
+    private static int report(CommandSourceStack source) {
+        @Nullable ResolutionStats stats = EnchantedBookItemModel.stats();
+        if (stats == null) {
+            source.sendFailure(Component.literal("No enchanted book models have been baked yet"));
+            return 0;
+        }
+
+        stats.describe().forEach(line -> source.sendSuccess(() -> Component.literal(line), false));
+        if (!ResolutionStats.collecting())
+            source.sendSuccess(() -> Component.literal("Stats are not being collected, use /nebs stats start to collect them"), false);
+        return 1;
+    }
+
+    private static int start(CommandSourceStack source, boolean start) {
+        started = start;
+        tick();
+        source.sendSuccess(() -> Component.literal(start ? "Started collecting the enchanted book resolution stats" : "Stopped collecting the enchanted book resolution stats"), false);
+        return 1;
+    }
+
+    private static int reset(CommandSourceStack source) {
+        @Nullable ResolutionStats stats = EnchantedBookItemModel.stats();
+        if (stats == null) {
+            source.sendFailure(Component.literal("No enchanted book models have been baked yet"));
+            return 0;
+        }
+
+        stats.reset();
+        source.sendSuccess(() -> Component.literal("Reset the enchanted book resolution stats"), false);
+        return 1;
+    }
+
+    /**
+     * Starts or stops collecting stats, depending on whether they were started by command or the summary is shown on
+     * the debug overlay. This is checked every client tick, so that stats stop being collected once the overlay is
+     * closed.
+     */
+    static void tick() {
+        boolean overlay = NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.DEBUG_OVERLAY) && Minecraft.getInstance().getDebugOverlay().showDebugScreen();
+        ResolutionStats.collect(started || overlay);
+    }
+
+    /**
+     * Adds a summary of the resolution stats to the right side of the debug overlay, if enabled in the config.
+     *
+     * @param event The event to add the summary to
+     */
+    static void debugText(CustomizeGuiOverlayEvent.DebugText event) {
+        if (!NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.DEBUG_OVERLAY)) return;
+
+        @Nullable ResolutionStats stats = EnchantedBookItemModel.stats();
+        if (stats == null) return;
+
+        LatencyHistogram latency = stats.latency();
+        event.getRight().add("");
+        event.getRight().add(String.format(Locale.ROOT, "NEBs: %d override, %d base, %d empty", stats.overrides(), stats.fallthroughs(), stats.empty()));
+        event.getRight().add(String.format(Locale.ROOT, "NEBs: p50 %d ns, p99 %d ns, max %d ns", latency.percentile(50), latency.percentile(99), latency.max()));
+    }
+
+    private EnchantedBookMetrics() { }
+}
@@ -0,0 +1,157 @@
+package org.infernalstudios.nebs;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.minecraft.client.Minecraft;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.PackResources;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * <h1>Enchanted Book Model Cache</h1>
+ * This is the on-disk cache of the enchanted book model files found by {@link EnchantedBookModelDiscovery}, used if
+ * {@linkplain NekosEnchantedBooksConfig#CACHE_DISCOVERY caching} is enabled. Since the models themselves are loaded by
+ * the game, the only thing worth caching is the listing of the {@code nebs} namespace, which otherwise has to go
+ * through every resource pack on every launch.
+ * <p>
+ * The cache is keyed by a {@linkplain #fingerprint(ResourceManager) fingerprint} of everything that can change that
+ * listing. If the fingerprint does not match, the cache is ignored and rewritten after the models are listed again. If
+ * any enabled resource pack cannot be fingerprinted, the models are always listed and nothing is cached.
+ *
+ * @since 2.0.4
+ */
+final class EnchantedBookModelCache {
+    /** The version of the cache format, which must be bumped whenever the format or the fingerprint changes. */
+    private static final int FORMAT = 2;
+    private static final Path FILE = FMLPaths.GAMEDIR.get().resolve(".cache").resolve(NekosEnchantedBooks.MOD_ID).resolve("models.bin");
+    /**
+     * The resource packs that are served from the game or from mod files, whose contents are covered by the mod files
+     * in the fingerprint. Forge also serves every mod as its own {@code mod:} pack.
+     */
+    private static final Set<String> GAME_PACKS = Set.of("vanilla", "mod_resources", "programmer_art", "high_contrast");
+    private static final String MOD_PACK_PREFIX = "mod:";
+    private static final String FILE_PACK_PREFIX = "file/";
+
+    /**
+     * Creates the fingerprint of the given resources. It covers the enabled resource packs in their order and every mod
+     * file, which includes the game itself, NEBs and any other mod that ships resources. Resource pack archives and mod
+     * jars are covered by their size and modification time. Folders are edited in place, so every NEBs model file in
+     * them is covered by its own size and modification time instead.
+     *
+     * @param resources The resource manager to fingerprint
+     * @return The fingerprint of the resources, or {@code null} if one of the enabled resource packs comes from somewhere
+     *         that cannot be fingerprinted, such as a server resource pack or a pack added by another mod
+     */
+    static @Nullable String fingerprint(ResourceManager resources) {
+        Hasher hasher = Hashing.sha256().newHasher().putInt(FORMAT);
+        Path packDirectory = Minecraft.getInstance().getResourcePackDirectory();
+        for (PackResources pack : (Iterable<PackResources>) resources.listPacks()::iterator) {
+            String id = pack.packId();
+            hasher.putString(id, StandardCharsets.UTF_8);
+            if (id.startsWith(FILE_PACK_PREFIX)) {
+                fingerprint(hasher, packDirectory.resolve(id.substring(FILE_PACK_PREFIX.length())));
+            } else if (!GAME_PACKS.contains(id) && !id.startsWith(MOD_PACK_PREFIX)) {
+                NekosEnchantedBooks.LOGGER.debug("Not caching the enchanted book models, since resource pack {} cannot be fingerprinted", id);
+                return null;
+            }
+        }
+
+        ModList.get().getModFiles().forEach(mod -> fingerprint(hasher, mod.getFile().getFilePath()));
+        return hasher.hash().toString();
+    }
+
+    private static void fingerprint(Hasher hasher, Path pack) {
+        hasher.putString(pack.toString(), StandardCharsets.UTF_8);
+        try {
+            if (!Files.isDirectory(pack)) {
+                hasher.putLong(Files.size(pack)).putLong(Files.getLastModifiedTime(pack).toMillis());
+                return;
+            }
+
+            // folders are edited in place, so only the model files themselves can tell if they changed
+            Path models = pack.resolve("assets").resolve(NekosEnchantedBooks.MOD_ID).resolve("models").resolve("item");
+            if (!Files.isDirectory(models)) return;
+
+            try (Stream<Path> files = Files.walk(models).sorted()) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    hasher.putString(models.relativize(file).toString(), StandardCharsets.UTF_8)
+                          .putLong(Files.size(file))
+                          .putLong(Files.getLastModifiedTime(file).toMillis());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // a pack we cannot read might have changed, so make sure the fingerprint never matches
+            hasher.putLong(System.nanoTime());
+        }
+    }
+
+    /**
+     * Reads the cached model files, if the cache exists and was written for the given fingerprint.
+     *
+     * @param fingerprint The fingerprint of the current resources
+     * @return The cached model files, or {@code null} if there is no usable cache
+     */
+    static @Nullable Set<ResourceLocation> read(String fingerprint) {
+        if (!Files.isRegularFile(FILE)) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(FILE)))) {
+            if (in.readInt() != FORMAT || !fingerprint.equals(in.readUTF())) return null;
+
+            int size = in.readInt();
+            Set<ResourceLocation> files = new HashSet<>(size);
+            for (int i = 0; i < size; i++) {
+                files.add(ResourceLocation.fromNamespaceAndPath(NekosEnchantedBooks.MOD_ID, in.readUTF()));
+            }
+
+            return files;
+        } catch (IOException | RuntimeException e) {
+            NekosEnchantedBooks.LOGGER.warn("Failed to read the enchanted book model cache, the models will be listed again", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the given model files to the cache. The cache is written to a temporary file first, so that a crash while
+     * writing never leaves a broken cache behind.
+     *
+     * @param fingerprint The fingerprint of the current resources
+     * @param files       The model files to cache
+     */
+    static void write(String fingerprint, Set<ResourceLocation> files) {
+        try {
+            Files.createDirectories(FILE.getParent());
+            Path temp = Files.createTempFile(FILE.getParent(), "models", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FORMAT);
+                out.writeUTF(fingerprint);
+                out.writeInt(files.size());
+                for (ResourceLocation file : files) {
+                    out.writeUTF(file.getPath());
+                }
+            }
+
+            Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            NekosEnchantedBooks.LOGGER.warn("Failed to write the enchanted book model cache", e);
+        }
+    }
+
+    private EnchantedBookModelCache() { }
+}
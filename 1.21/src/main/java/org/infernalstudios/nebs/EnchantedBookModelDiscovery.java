@@ -0,0 +1,204 @@
+package org.infernalstudios.nebs;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonObject;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.resources.model.ModelResourceLocation;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.PackType;
+import net.minecraft.server.packs.resources.PreparableReloadListener;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.util.GsonHelper;
+import net.minecraft.util.profiling.ProfilerFiller;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <h1>Enchanted Book Model Discovery</h1>
+ * This reload listener discovers the enchanted book models in the preparation stage of a resource reload, which runs on
+ * the background executor alongside the preparation of every other reload listener. By the time the models are
+ * registered in {@link EnchantedBookOverrides#prepare(java.util.function.Consumer)}, the resources have usually already
+ * been listed, so all that is left to do on the model loading thread is to register them.
+ * <p>
+ * If the models are registered before the discovery for the running reload has been started, they are discovered on
+ * the spot instead, which is exactly how NEBs discovered its models before this listener existed.
+ *
+ * @since 2.0.4
+ */
+final class EnchantedBookModelDiscovery implements PreparableReloadListener {
+    /** The model files of the base enchanted book model and its parent, which every model that fits a template uses. */
+    private static final String[] BASE_MODELS = {"minecraft:models/item/enchanted_book.json", "minecraft:models/item/generated.json"};
+    /** The discovery started for the running resource reload, which is taken once the models are registered. */
+    private static final AtomicReference<@Nullable CompletableFuture<Discovery>> PENDING = new AtomicReference<>();
+
+    @Override
+    public CompletableFuture<Void> reload(PreparationBarrier barrier, ResourceManager resources, ProfilerFiller prepareProfiler, ProfilerFiller applyProfiler, Executor prepareExecutor, Executor applyExecutor) {
+        CompletableFuture<Discovery> discovery = CompletableFuture.supplyAsync(() -> discover(resources), prepareExecutor);
+        PENDING.set(discovery);
+
+        // models are registered before the barrier, so anything left over was never used and must not leak into the next reload
+        return discovery.thenCompose(barrier::wait).thenAcceptAsync(d -> PENDING.compareAndSet(discovery, null), applyExecutor);
+    }
+
+    /**
+     * Takes the discovery of the running resource reload, waiting for it to finish if needed. If no discovery has been
+     * started, the models are discovered right away using the current resource manager.
+     *
+     * @return The discovered models
+     */
+    static Discovery take() {
+        @Nullable CompletableFuture<Discovery> discovery = PENDING.getAndSet(null);
+        return discovery != null ? discovery.join() : discover(Minecraft.getInstance().getResourceManager());
+    }
+
+    /**
+     * Lists every enchanted book model in the {@code nebs} namespace and derives their NEBs IDs. Each resource pack is
+     * only asked for the {@code models/item} folder in our namespace, instead of every model of every namespace. Models
+     * bundled with NEBs for mods that are not loaded are
+     * {@linkplain EnchantedBookOverrides#shouldPrepare(String, ResourceLocation, ResourceManager, Set) pruned}. If
+     * {@linkplain NekosEnchantedBooksConfig#CACHE_DISCOVERY caching} is enabled, the listing is taken from the
+     * {@link EnchantedBookModelCache} instead if the resources have not changed since it was written.
+     *
+     * @param resources The resource manager to list the models from
+     * @return The discovered models
+     */
+    private static Discovery discover(ResourceManager resources) {
+        EnchantedBookEvents.Discovery event = new EnchantedBookEvents.Discovery();
+        event.begin();
+        long start = System.nanoTime();
+        @Nullable String fingerprint = NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.CACHE_DISCOVERY) ? EnchantedBookModelCache.fingerprint(resources) : null;
+        @Nullable Set<ResourceLocation> files = fingerprint != null ? EnchantedBookModelCache.read(fingerprint) : null;
+        if (files == null) {
+            files = list(resources);
+            if (fingerprint != null) EnchantedBookModelCache.write(fingerprint, files);
+        } else {
+            NekosEnchantedBooks.LOGGER.debug("Using {} cached enchanted book models", files.size());
+        }
+
+        Set<ModelResourceLocation> models = new HashSet<>();
+        Set<String> pruned = new TreeSet<>();
+        Map<ResourceLocation, HashCode> hashes = new HashMap<>();
+        @Nullable HashCode base = NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.INCREMENTAL_BAKING) ? hashBase(resources) : null;
+        Set<String> registered = EnchantedBookOverrides.registeredIds();
+        files.forEach(modelFile -> {
+            ModelResourceLocation model = EnchantedBookOverrides.modelFromFile(modelFile);
+            String id = EnchantedBookOverrides.idFromModel(model);
+            if (!EnchantedBookOverrides.shouldPrepare(id, modelFile, resources, registered)) {
+                pruned.add(id);
+                return;
+            }
+
+            models.add(model);
+            if (base == null) return;
+
+            @Nullable HashCode hash = hash(resources, modelFile, base);
+            if (hash != null) hashes.put(model.id(), hash);
+        });
+
+        event.models = models.size();
+        event.pruned = pruned.size();
+        event.commit();
+        return new Discovery(Set.copyOf(models), pruned, Map.copyOf(hashes), System.nanoTime() - start);
+    }
+
+    private static Set<ResourceLocation> list(ResourceManager resources) {
+        Set<ResourceLocation> files = new HashSet<>();
+        resources.listPacks().forEach(pack -> pack.listResources(PackType.CLIENT_RESOURCES, NekosEnchantedBooks.MOD_ID, "models/item", (file, resource) -> {
+            if (file.getPath().endsWith(".json")) files.add(file);
+        }));
+
+        return files;
+    }
+
+    /**
+     * Hashes the model files of the base enchanted book model, which every enchanted book model that can be rebaked
+     * incrementally parents.
+     *
+     * @param resources The resource manager to read the base model from
+     * @return The hash of the base model, or {@code null} if it could not be read
+     */
+    private static @Nullable HashCode hashBase(ResourceManager resources) {
+        try {
+            Hasher hasher = Hashing.murmur3_128().newHasher();
+            for (String model : BASE_MODELS) {
+                hasher.putBytes(read(resources, ResourceLocation.parse(model)));
+            }
+
+            return hasher.hash();
+        } catch (IOException | RuntimeException e) {
+            NekosEnchantedBooks.LOGGER.debug("Failed to hash the base enchanted book model, every model will be rebaked", e);
+            return null;
+        }
+    }
+
+    /**
+     * Hashes the given model file together with the {@code layer0} texture it references and that texture's metadata.
+     * Two models with the same hash are baked into the same geometry, so the geometry baked during the last reload can
+     * be reused.
+     *
+     * @param resources The resource manager to read the files from
+     * @param modelFile The model file to hash
+     * @param base      The hash of the base enchanted book model
+     * @return The hash of the model, or {@code null} if it could not be read
+     */
+    private static @Nullable HashCode hash(ResourceManager resources, ResourceLocation modelFile, HashCode base) {
+        try {
+            byte[] model = read(resources, modelFile);
+            Hasher hasher = Hashing.murmur3_128().newHasher().putBytes(base.asBytes()).putBytes(model);
+
+            JsonObject textures = GsonHelper.getAsJsonObject(GsonHelper.parse(new String(model, StandardCharsets.UTF_8)), "textures");
+            ResourceLocation texture = ResourceLocation.parse(GsonHelper.getAsString(textures, "layer0")).withPath(path -> "textures/" + path + ".png");
+            hasher.putBytes(read(resources, texture));
+
+            // animated textures are defined in their metadata
+            Optional<Resource> metadata = resources.getResource(texture.withSuffix(".mcmeta"));
+            if (metadata.isPresent()) {
+                try (InputStream in = metadata.get().open()) {
+                    hasher.putBytes(in.readAllBytes());
+                }
+            }
+
+            return hasher.hash();
+        } catch (IOException | RuntimeException e) {
+            // models that can't be hashed are simply rebaked, and any errors are logged by the game when it loads them
+            return null;
+        }
+    }
+
+    private static byte[] read(ResourceManager resources, ResourceLocation file) throws IOException {
+        try (InputStream in = resources.open(file)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "NEBs Model Discovery";
+    }
+
+    /**
+     * The enchanted book models discovered for a resource reload.
+     *
+     * @param models The models to prepare
+     * @param pruned The NEBs IDs of the models that were pruned, sorted
+     * @param hashes The content hashes of the models, only populated if
+     *               {@link NekosEnchantedBooksConfig#INCREMENTAL_BAKING} is enabled
+     * @param nanos  The time the discovery took, in nanoseconds
+     */
+    record Discovery(Set<ModelResourceLocation> models, Set<String> pruned, Map<ResourceLocation, HashCode> hashes, long nanos) { }
+}
@@ -1,31 +1,46 @@
 package org.infernalstudios.nebs;
 
-import net.minecraft.client.Minecraft;
+import com.google.common.hash.HashCode;
+import com.mojang.blaze3d.systems.RenderSystem;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.block.model.ItemOverrides;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.resources.model.BakedModel;
-import net.minecraft.client.resources.model.BlockModelRotation;
 import net.minecraft.client.resources.model.Material;
 import net.minecraft.client.resources.model.ModelBaker;
 import net.minecraft.client.resources.model.ModelResourceLocation;
 import net.minecraft.client.resources.model.ModelState;
 import net.minecraft.client.resources.model.UnbakedModel;
 import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
 import net.minecraft.core.component.DataComponents;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.enchantment.Enchantment;
 import net.minecraft.world.item.enchantment.ItemEnchantments;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.infernalstudios.nebs.core.BakeProfile;
+import org.infernalstudios.nebs.core.EnchantmentAdapter;
+import org.infernalstudios.nebs.core.OverrideCursor;
+import org.infernalstudios.nebs.core.OverrideModels;
+import org.infernalstudios.nebs.core.OverrideResolver;
+import org.infernalstudios.nebs.core.ResolutionStats;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -49,6 +64,9 @@ import java.util.function.Function;
  *         {@code minecraft:item/enchanted_book} instead of {@code minecraft:item/generated}, so any custom additions
  *         made to the base model are reflected in yours.</li>
  *     </ul>
+ *     <li>Optionally, a model can be given for a specific level of an enchantment by adding the level as another folder
+ *     separation. For example, {@code assets/nebs/models/item/minecraft/sharpness/5.json} is used for Sharpness V,
+ *     while every other level of Sharpness keeps using {@code assets/nebs/models/item/minecraft/sharpness.json}.</li>
  *     <li>The placement of the texture you would like to use does not matter, as long as it is properly referenced in
  *     your model file. If you look at any of NEBs's own models as an example, you will see that the {@code layer0}
  *     texture simply points to a texture image that is in the same structure as the model files are. This makes it easy
@@ -74,7 +92,7 @@ import java.util.function.Function;
  * @since 2.0.0
  */
 @SuppressWarnings("deprecation") // We are wrapping things that use deprecated methods
-public final class EnchantedBookOverrides extends ItemOverrides {
+public final class EnchantedBookOverrides extends ItemOverrides implements EnchantmentAdapter<Registry<Enchantment>, Holder<Enchantment>, BakedModel> {
     /** The name of the vanilla enchanted book model, used as a base for NEBs own models. */
     static final String ENCHANTED_BOOK_UNBAKED_MODEL_NAME = "minecraft:item/enchanted_book";
 
@@ -82,19 +100,39 @@ public final class EnchantedBookOverrides extends ItemOverrides {
         return ResourceLocation.fromNamespaceAndPath(NekosEnchantedBooks.MOD_ID, "item/" + enchantment.replace(".", "/"));
     }
 
-    private static String idFromModel(ModelResourceLocation model) {
+    static String idFromModel(ModelResourceLocation model) {
         return model.id().getPath().substring("item/".length()).replace("/", ".");
     }
 
-    private static ModelResourceLocation modelFromFile(ResourceLocation modelFile) {
+    static ModelResourceLocation modelFromFile(ResourceLocation modelFile) {
         return ModelResourceLocation.inventory(modelFile.withPath(s -> s.substring("models/".length(), s.length() - ".json".length())));
     }
 
-    private static final Set<String> TEXTURED_ENCHANTMENTS = new HashSet<>();
-    private static final Set<ModelResourceLocation> PREPARED_MODELS = new HashSet<>();
+    /**
+     * The models prepared for the latest resource reload. A new generation is built every time models are prepared and
+     * replaces the old one as a whole, so nothing prepared for an older reload is ever baked or validated again.
+     */
+    private static volatile Generation generation = new Generation();
+    /** The bake profile of the latest resource reload, started when models are prepared and reported once they are baked. */
+    private static volatile BakeProfile profile = new BakeProfile();
+    /** The file the {@linkplain #report(BakeProfile) bake profile} of every resource reload is written to. */
+    private static final Path PROFILE_FILE = FMLPaths.GAMEDIR.get().resolve("logs").resolve("nebs-bake-profile.json");
+
+    /** The enchantment registry of the last joined world, kept so that a resource reload can rebuild the lookup table. */
+    private static volatile @Nullable Registry<Enchantment> knownEnchantments;
+    /** The most recently baked overrides, whose lookup table is rebuilt when the enchantment registry changes. */
+    private static volatile @Nullable EnchantedBookOverrides current;
 
     private final ItemOverrides base;
     private final Map<String, BakedModel> overrides;
+    /** The models that have yet to be baked, only populated if {@link NekosEnchantedBooksConfig#LAZY_BAKING} is enabled. */
+    private final Map<String, EnchantedBookTemplateBaker.Deferred> unbaked;
+    /** Whether any model in {@link #unbaked} has yet to be baked, which is cleared once every one of them has been. */
+    private volatile boolean lazy;
+    /** Resolves the overrides of the stored enchantments, through the lookup table and caches shared by every version. */
+    private final OverrideResolver<Registry<Enchantment>, Holder<Enchantment>, BakedModel> resolver;
+    private final OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> cursor = this.newCursor();
+    private final Function<ItemEnchantments, BakedModel> finder = this::find;
 
     @SuppressWarnings("unused") // BlockModelCoreMod
     public static ItemOverrides of(ItemOverrides base, String location, ModelBaker baker) {
@@ -142,8 +180,11 @@ public final class EnchantedBookOverrides extends ItemOverrides {
 
     /**
      * This constructor follows up on the baking of the enchanted book item model's overrides. It calls the
-     * {@link #bakeOverrides(ModelBaker)} method, where existing models are queried for automatic model loading. The
-     * enchantments are later validated in {@link #validate(Iterable)} when a world is loaded, since enchantments are a
+     * {@link #bakeOverrides(ModelBaker, Map)} method, where existing models are queried for automatic model loading. If
+     * {@linkplain NekosEnchantedBooksConfig#LAZY_BAKING lazy baking} is enabled, the models are only deferred here and
+     * are instead baked by {@link #bakedOverride(String)} the first time they are needed. The model baker is never kept,
+     * so it is released along with the rest of the model bakery once the resource reload is done. The
+     * enchantments are later validated in {@link #validate(Registry)} when a world is loaded, since enchantments are a
      * data pack registry. The process of taking advantage of automatic model loading was described in the documentation
      * for the class in {@link EnchantedBookOverrides}.
      *
@@ -154,54 +195,202 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      */
     private EnchantedBookOverrides(ItemOverrides base, ModelBaker baker) {
         this.base = base;
-        this.overrides = bakeOverrides(baker);
+        boolean lazy = NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.LAZY_BAKING);
+        this.unbaked = lazy ? new HashMap<>() : Collections.emptyMap();
+        this.overrides = bakeOverrides(baker, lazy ? this.unbaked : null);
+        this.lazy = !this.unbaked.isEmpty();
+        this.resolver = new OverrideResolver<>(this, OverrideResolver.anyLevel(this.overrides.keySet()) || OverrideResolver.anyLevel(this.unbaked.keySet()));
+        if (knownEnchantments != null) this.cache(knownEnchantments);
+        current = this;
     }
 
     /**
-     * Bakes the custom overrides used for the enchanted books.
+     * Bakes the custom overrides used for the enchanted books. Models are baked through an
+     * {@link EnchantedBookTemplateBaker}, so that models sharing the same texture also share the same baked model.
+     * <p>
+     * If the models are baked lazily, every model that can be baked from a template is
+     * {@linkplain EnchantedBookTemplateBaker#defer(ResourceLocation) deferred} into the given map instead, and only the
+     * templates themselves are baked now. Any other model still needs the model baker, so it is baked now as well.
      *
-     * @param baker The model baker
+     * @param baker    The model baker
+     * @param deferred The map to put the deferred models in, or {@code null} if the models are not baked lazily
      * @return The map of enchantment IDs to their respective baked models
      */
-    private static Map<String, BakedModel> bakeOverrides(ModelBaker baker) {
-        Map<String, BakedModel> overrides = new HashMap<>(PREPARED_MODELS.size());
-        PREPARED_MODELS.forEach(model -> {
+    private static Map<String, BakedModel> bakeOverrides(ModelBaker baker, @Nullable Map<String, EnchantedBookTemplateBaker.Deferred> deferred) {
+        Generation generation = EnchantedBookOverrides.generation;
+        BakeProfile profile = EnchantedBookOverrides.profile;
+        long start = System.nanoTime();
+        Set<String> textured = new HashSet<>();
+        Map<String, BakedModel> overrides = deferred != null ? new ConcurrentHashMap<>() : new HashMap<>(generation.models().size());
+        EnchantedBookTemplateBaker templates = new EnchantedBookTemplateBaker(baker, NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.TEMPLATE_BAKING), generation.hashes());
+        boolean parallel = deferred == null && NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.PARALLEL_BAKING);
+        Map<String, EnchantedBookTemplateBaker.Remap> remaps = new HashMap<>();
+        generation.models().forEach(model -> {
             String enchantment = idFromModel(model);
-            BakedModel baked = baker.bake(model.id(), BlockModelRotation.X0_Y0);
+            @Nullable EnchantedBookTemplateBaker.Deferred later = deferred != null ? templates.defer(model.id()) : null;
+            if (later != null) {
+                // failed models are logged when they are baked
+                textured.add(enchantment);
+                deferred.put(enchantment, later);
+                return;
+            }
+
+            @Nullable EnchantedBookTemplateBaker.Remap remap = parallel ? templates.remap(model.id()) : null;
+            if (remap != null) {
+                // remapped in parallel once every model that needs the model baker is baked
+                textured.add(enchantment);
+                remaps.put(enchantment, remap);
+                return;
+            }
+
+            EnchantedBookEvents.Bake event = new EnchantedBookEvents.Bake(enchantment);
+            event.begin();
+            long bakeStart = System.nanoTime();
+            BakedModel baked = templates.bake(model.id());
+            profile.baked(enchantment, System.nanoTime() - bakeStart, baked != null);
+            event.finish(baked != null);
 
             // null model? something went wrong, so stop now
             if (baked == null) return;
 
-            TEXTURED_ENCHANTMENTS.add(enchantment);
+            textured.add(enchantment);
             overrides.put(enchantment, baked);
         });
 
+        if (!remaps.isEmpty()) overrides.putAll(templates.remapAll(remaps, profile));
+
+        // publish the textured enchantments, so validation never sees them half-built
+        EnchantedBookOverrides.generation = new Generation(generation.models(), Set.copyOf(textured), generation.hashes());
+        templates.finish(profile);
+        profile.finish(System.nanoTime() - start, deferred != null);
+        report(profile);
         return overrides;
     }
 
+    /**
+     * Reports the given bake profile once the models are baked, or deferred if they are baked lazily. The summary goes
+     * to the log at debug level, while the full profile is written to {@link #PROFILE_FILE} as JSON, so that it can be
+     * compared between pack updates.
+     *
+     * @param profile The finished bake profile
+     */
+    private static void report(BakeProfile profile) {
+        NekosEnchantedBooks.LOGGER.debug(profile::summary);
+        try {
+            profile.write(PROFILE_FILE);
+        } catch (IOException e) {
+            NekosEnchantedBooks.LOGGER.warn("Failed to write the enchanted book bake profile", e);
+        }
+    }
+
     /**
      * Prepares all custom models to be used by NEBs. This includes resolving models so that their textures can be
-     * referenced even though it doesn't exist in a model file that is directly tied to an item.
+     * referenced even though it doesn't exist in a model file that is directly tied to an item. The models themselves
+     * are discovered ahead of time by {@link EnchantedBookModelDiscovery}.
      *
      * @param resolver The model resolver
      */
     static void prepare(Consumer<ModelResourceLocation> resolver) {
-        Minecraft.getInstance().getResourceManager().listResources("models/item", id -> NekosEnchantedBooks.MOD_ID.equals(id.getNamespace()) && id.getPath().endsWith("json")).forEach((modelFile, r) -> {
-            // save enchantment
-            ModelResourceLocation enchantment = modelFromFile(modelFile);
+        EnchantedBookModelDiscovery.Discovery discovery = EnchantedBookModelDiscovery.take();
+        discovery.models().forEach(resolver);
 
-            PREPARED_MODELS.add(enchantment);
-            resolver.accept(enchantment);
-        });
+        if (!discovery.pruned().isEmpty())
+            NekosEnchantedBooks.LOGGER.info("Pruned {} enchanted book models bundled with NEBs for mods that are not loaded: [{}]", discovery.pruned().size(), String.join(", ", discovery.pruned()));
+
+        // publish the new generation, releasing the old one
+        EnchantedBookOverrides.generation = new Generation(discovery.models(), Set.of(), discovery.hashes());
+
+        // start the profile of this reload
+        BakeProfile profile = new BakeProfile();
+        profile.discovered(discovery.models().size(), discovery.pruned().size(), discovery.nanos());
+        EnchantedBookOverrides.profile = profile;
     }
 
-    static void validate(Iterable<Enchantment> enchantments) {
-        Set<String> missing = new TreeSet<>();
-        enchantments.forEach(enchantment -> {
-            @Nullable String id = NekosEnchantedBooks.idOf(enchantment);
-            if (id != null && !TEXTURED_ENCHANTMENTS.contains(id) && !NekosEnchantedBooks.NON_ENCHANTMENTS.contains(id))
-                missing.add(id);
-        });
+    /**
+     * Checks if the model for the given NEBs ID should be prepared. Only the models bundled with NEBs itself are ever
+     * pruned, so that they are never resolved, stitched or baked. The first part of the ID is the namespace of the
+     * enchantment, which is almost always the ID of the mod that registers it. A bundled model is only pruned if that
+     * mod is not loaded, and the model is always kept if:
+     * <ul>
+     *     <li>its namespace is {@linkplain NekosEnchantedBooksConfig#KEPT_NAMESPACES kept in the config},</li>
+     *     <li>it matches an enchantment of the {@linkplain #registeredIds() last joined world}, such as one from a data
+     *     pack,</li>
+     *     <li>or a resource pack provides or overrides it, since packs ship models on purpose.</li>
+     * </ul>
+     *
+     * @param enchantment The NEBs ID of the enchantment
+     * @param file        The model file
+     * @param resources   The resource manager the model was found in
+     * @param registered  The NEBs IDs of the registered enchantments
+     * @return If the model should be prepared
+     */
+    static boolean shouldPrepare(String enchantment, ResourceLocation file, ResourceManager resources, Set<String> registered) {
+        return OverrideModels.shouldPrepare(enchantment, namespace -> ModList.get().isLoaded(namespace) || NekosEnchantedBooksConfig.get(NekosEnchantedBooksConfig.KEPT_NAMESPACES).contains(namespace), registered, () -> isBundled(file, resources));
+    }
+
+    /**
+     * Checks if the given model file is only provided by the NEBs mod file itself, and not by any resource pack.
+     *
+     * @param file      The model file
+     * @param resources The resource manager the model was found in
+     * @return If the model is bundled with NEBs
+     */
+    private static boolean isBundled(ResourceLocation file, ResourceManager resources) {
+        // a resource pack that provides or overrides the model adds its own entry to the stack
+        if (resources.getResourceStack(file).size() != 1) return false;
+
+        Path bundled = ModList.get().getModFileById(NekosEnchantedBooks.MOD_ID).getFile().findResource("assets", file.getNamespace(), file.getPath());
+        return Files.exists(bundled);
+    }
+
+    /**
+     * Gets the NEBs IDs of every enchantment in the {@linkplain #knownEnchantments enchantment registry of the last
+     * joined world}, by both their registry key and their description, so that their models are never pruned.
+     *
+     * @return The NEBs IDs of the registered enchantments, or an empty set if no world has been joined yet
+     */
+    static Set<String> registeredIds() {
+        @Nullable Registry<Enchantment> enchantments = knownEnchantments;
+        if (enchantments == null) return Set.of();
+
+        return OverrideModels.registeredIds(enchantments, enchantment -> keyIdOf(enchantments, enchantment), NekosEnchantedBooks::idOf);
+    }
+
+    /**
+     * Gets the NEBs ID of the given enchantment derived from its key in the given registry.
+     *
+     * @param enchantments The enchantment registry
+     * @param enchantment  The enchantment to get the NEBs ID of
+     * @return The NEBs ID, or {@code null} if the enchantment is not in the registry
+     */
+    private static @Nullable String keyIdOf(Registry<Enchantment> enchantments, Enchantment enchantment) {
+        return enchantments.getResourceKey(enchantment).map(NekosEnchantedBooks::idOf).orElse(null);
+    }
+
+    /**
+     * Gets the resolution stats of the most recently baked overrides, which are shown by {@link EnchantedBookMetrics}.
+     *
+     * @return The resolution stats, or {@code null} if no overrides have been baked yet
+     */
+    static @Nullable ResolutionStats stats() {
+        @Nullable EnchantedBookOverrides current = EnchantedBookOverrides.current;
+        return current != null ? current.resolver.stats() : null;
+    }
+
+    static void validate(Registry<Enchantment> enchantments) {
+        EnchantedBookEvents.Validate event = new EnchantedBookEvents.Validate();
+        event.begin();
+
+        // the registry has changed, so the lookup table needs to be rebuilt
+        knownEnchantments = enchantments;
+        if (current != null) current.cache(enchantments);
+
+        Generation generation = EnchantedBookOverrides.generation;
+        Set<String> missing = OverrideModels.missing(enchantments, enchantment -> keyIdOf(enchantments, enchantment), NekosEnchantedBooks::idOf, generation.textured(), NekosEnchantedBooks.NON_ENCHANTMENTS);
+
+        event.enchantments = enchantments.size();
+        event.missing = missing.size();
+        event.commit();
 
         if (!missing.isEmpty()) {
             NekosEnchantedBooks.LOGGER.warn("Missing, or failed to load, enchanted book models for the following enchantments: [{}]", String.join(", ", missing));
@@ -213,6 +402,91 @@ public final class EnchantedBookOverrides extends ItemOverrides {
 
     /* BAKED MODEL RESOLUTION */
 
+    /**
+     * Compiles the {@linkplain OverrideResolver#rebuild(Object, Iterable) lookup table} for the given enchantment
+     * registry, so that the hot path never has to compute a NEBs ID.
+     *
+     * @param enchantments The enchantment registry to build the table for
+     */
+    private void cache(Registry<Enchantment> enchantments) {
+        // lazy overrides are resolved through the resolution cache, otherwise the table would bake all of them at once
+        if (this.lazy) {
+            this.resolver.invalidate();
+            return;
+        }
+
+        List<Holder<Enchantment>> holders = new ArrayList<>();
+        for (Enchantment enchantment : enchantments) {
+            holders.add(enchantments.wrapAsHolder(enchantment));
+        }
+
+        this.resolver.rebuild(enchantments, holders);
+    }
+
+    @Override
+    public int rawIdOf(Registry<Enchantment> registry, Holder<Enchantment> enchantment) {
+        return registry.getId(enchantment.value());
+    }
+
+    @Override
+    public @Nullable String keyIdOf(Holder<Enchantment> enchantment) {
+        return enchantment.unwrapKey().map(NekosEnchantedBooks::idOf).orElse(null);
+    }
+
+    @Override
+    public @Nullable String descriptionIdOf(Holder<Enchantment> enchantment) {
+        return NekosEnchantedBooks.idOf(enchantment.value());
+    }
+
+    @Override
+    public int maxLevelOf(Holder<Enchantment> enchantment) {
+        return enchantment.value().getMaxLevel();
+    }
+
+    @Override
+    public @Nullable BakedModel overrideOf(String id) {
+        return this.bakedOverride(id);
+    }
+
+    /**
+     * Gets the baked override for the given NEBs ID. If {@linkplain NekosEnchantedBooksConfig#LAZY_BAKING lazy baking}
+     * is enabled and the override has not been baked yet, it is remapped from its template now. Each model is only ever
+     * baked once, and the lock is no longer taken once there is nothing left to bake.
+     *
+     * @param enchantment The NEBs ID of the enchantment
+     * @return The baked override, or {@code null} if the enchantment has none or its model failed to bake
+     */
+    private @Nullable BakedModel bakedOverride(@Nullable String enchantment) {
+        if (enchantment == null) return null;
+
+        @Nullable BakedModel override = this.overrides.get(enchantment);
+        if (override != null || !this.lazy) return override;
+
+        synchronized (this.unbaked) {
+            // another thread may have baked it, or it has no model at all
+            @Nullable EnchantedBookTemplateBaker.Deferred model = this.unbaked.remove(enchantment);
+            if (model == null) return this.overrides.get(enchantment);
+
+            EnchantedBookEvents.Bake event = new EnchantedBookEvents.Bake(enchantment);
+            event.begin();
+            try {
+                override = model.bake();
+            } catch (RuntimeException e) {
+                NekosEnchantedBooks.LOGGER.error("Failed to bake enchanted book model for enchantment {}", enchantment, e);
+            }
+            event.finish(override != null);
+
+            if (override != null) {
+                this.overrides.put(enchantment, override);
+            } else {
+                NekosEnchantedBooks.LOGGER.warn("Failed to load enchanted book model for enchantment {}", enchantment);
+            }
+
+            if (this.unbaked.isEmpty()) this.lazy = false;
+            return override;
+        }
+    }
+
     /**
      * Resolves the baked model based on the given stack's enchantment. If the enchantment is not found in the custom
      * overrides, we default back to the super method
@@ -228,42 +502,82 @@ public final class EnchantedBookOverrides extends ItemOverrides {
      */
     @Override
     public @Nullable BakedModel resolve(BakedModel model, ItemStack stack, @Nullable ClientLevel level, @Nullable LivingEntity entity, int seed) {
-        for (Enchantment enchantment : getEnchantments(stack)) {
-            @Nullable String key = NekosEnchantedBooks.idOf(enchantment);
-            if (this.overrides.containsKey(key)) {
-                return this.overrides.get(key);
-            }
+        ResolutionStats stats = this.resolver.stats();
+        boolean sampled = stats.sample(EnchantedBookEvents.recording());
+        long start = sampled ? System.nanoTime() : 0;
+
+        // books without enchantments can never have an override, so they skip the lookup entirely
+        ItemEnchantments enchantments = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
+        @Nullable BakedModel override = enchantments.isEmpty() ? null : this.overrideOf(enchantments);
+        if (sampled) {
+            long latency = System.nanoTime() - start;
+            stats.sampled(latency);
+            EnchantedBookEvents.resolved(enchantments.size(), override != null, latency);
+        }
+
+        if (override != null) {
+            stats.resolvedOverride();
+            return override;
+        }
+
+        if (enchantments.isEmpty()) {
+            stats.resolvedEmpty();
+        } else {
+            stats.resolvedBase();
         }
 
         return this.base.resolve(model, stack, level, entity, seed);
     }
 
     /**
-     * Gets the enchantment from the given stack. If the stack has no enchantments, then this method returns null. If
-     * the stack has multiple enchantments, then the first key found is what will be used.
+     * Gets the baked override for the given stored enchantments component. Since the component is immutable, the result
+     * is {@linkplain OverrideResolver#resolve(Object, java.util.function.Function) memoized} by the identity of the
+     * component, so repeated renders of the same stack only cost a single lookup.
      *
-     * @param stack The stack to get the enchantment from
-     * @return The enchantment of the stack, or {@code null} if it does not have any
+     * @param enchantments The stored enchantments of the stack
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
      */
-    private static Iterable<Enchantment> getEnchantments(ItemStack stack) {
-        ItemEnchantments enchantments = stack.getOrDefault(DataComponents.STORED_ENCHANTMENTS, ItemEnchantments.EMPTY);
-        return () -> new Iterator<>() {
-            private final Iterator<Holder<Enchantment>> iterator = enchantments.keySet().iterator();
+    private @Nullable BakedModel overrideOf(ItemEnchantments enchantments) {
+        return this.resolver.resolve(enchantments, this.finder);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+    /**
+     * Walks the given stored enchantments on a memo miss. It is bound to {@link #finder} once, so that resolving a
+     * stack does not allocate a new lambda every time.
+     *
+     * @param enchantments The stored enchantments of the stack
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
+     */
+    private @Nullable BakedModel find(ItemEnchantments enchantments) {
+        // the cursor is only reused on the render thread, anything else gets its own
+        OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> cursor = RenderSystem.isOnRenderThread() ? this.cursor : this.newCursor();
+        return cursor.find(enchantments);
+    }
 
-            @Override
-            public Enchantment next() {
-                return iterator.next().get();
-            }
+    /**
+     * Creates a cursor that walks the enchantments of a stored enchantments component. The enchantments are walked with
+     * {@link java.util.Set#forEach(Consumer)} on the key set of the backing map, which is made accessible by the access
+     * transformer. The map caches its key set and iterates its own backing arrays, so unlike
+     * {@link ItemEnchantments#keySet()}, which wraps the key set in a new unmodifiable view every time, nothing has to
+     * be allocated for each stack.
+     *
+     * @return The new cursor
+     */
+    private OverrideCursor<ItemEnchantments, Holder<Enchantment>, BakedModel> newCursor() {
+        return new OverrideCursor<>((enchantments, cursor) -> enchantments.enchantments.keySet().forEach(cursor), (enchantments, holder) -> this.resolver.overrideOf(holder, this.resolver.isLeveled() ? enchantments.getLevel(holder) : 0));
+    }
 
-            @Override
-            public void forEachRemaining(Consumer<? super Enchantment> action) {
-                iterator.forEachRemaining(holder -> action.accept(holder.get()));
-            }
-        };
+    /**
+     * The state of a single resource reload. Generations are immutable, so that they can be read from any thread.
+     *
+     * @param models   The models that were found when the models were prepared
+     * @param textured The NEBs IDs of every enchantment whose model has been baked or deferred
+     * @param hashes   The content hashes of the models, only populated if
+     *                 {@link NekosEnchantedBooksConfig#INCREMENTAL_BAKING} is enabled
+     */
+    private record Generation(Set<ModelResourceLocation> models, Set<String> textured, Map<ResourceLocation, HashCode> hashes) {
+        private Generation() {
+            this(Set.of(), Set.of(), Map.of());
+        }
     }
 }
@@ -0,0 +1,554 @@
+package org.infernalstudios.nebs;
+
+import com.google.common.hash.HashCode;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.block.model.BlockModel;
+import net.minecraft.client.renderer.block.model.ItemOverrides;
+import net.minecraft.client.renderer.block.model.ItemTransforms;
+import net.minecraft.client.renderer.texture.SpriteContents;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.client.resources.model.BlockModelRotation;
+import net.minecraft.client.resources.model.Material;
+import net.minecraft.client.resources.model.ModelBaker;
+import net.minecraft.core.Direction;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.ItemDisplayContext;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.client.model.IQuadTransformer;
+import org.infernalstudios.nebs.core.BakeProfile;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <h1>Enchanted Book Template Baker</h1>
+ * This baker is used to bake the enchanted book overrides. Almost every enchanted book model only parents
+ * {@code minecraft:item/enchanted_book} and swaps out its {@code layer0} texture, so the model baked from it only
+ * depends on that texture. Any model that does anything more than swap the texture is baked normally.
+ * <p>
+ * Models that use the same texture, such as the aliases generated from {@code assets/nebs/overrides.json}, are
+ * interned so that they all share a single baked model. If
+ * {@linkplain NekosEnchantedBooksConfig#TEMPLATE_BAKING template baking} is enabled, the geometry is also shared
+ * between different textures. The first model baked for each transparency mask is baked normally and kept as a
+ * template, and every following model with the same mask reuses the quads of that template, with their UVs remapped
+ * onto its own sprite.
+ * <p>
+ * If {@linkplain NekosEnchantedBooksConfig#LAZY_BAKING lazy baking} is enabled, models are
+ * {@linkplain #defer(ResourceLocation) deferred} instead. Only the templates are baked during the resource reload, and
+ * each model is remapped from its template once it is needed, so that the model baker does not have to be kept after
+ * the reload.
+ * <p>
+ * If {@linkplain NekosEnchantedBooksConfig#PARALLEL_BAKING parallel baking} is enabled, models are
+ * {@linkplain #remap(ResourceLocation) planned} instead of being remapped right away, and every planned model is then
+ * {@linkplain #remapAll(Map, BakeProfile) remapped} in parallel. Remapping only reads the quads of a template and the
+ * bounds of two sprites, so unlike baking a model from scratch it is safe to do off the model loading thread.
+ * <p>
+ * If {@linkplain NekosEnchantedBooksConfig#INCREMENTAL_BAKING incremental baking} is enabled, the template each model
+ * was baked from is also kept until the next resource reload. Any model whose model and texture files have the same
+ * {@linkplain EnchantedBookModelDiscovery content hash} as before reuses the geometry of that template, remapped onto
+ * its new sprite since the atlas is stitched again on every reload.
+ *
+ * @since 2.0.4
+ */
+final class EnchantedBookTemplateBaker {
+    private static final RandomSource RANDOM = RandomSource.create();
+    /** The rough size of a {@link BakedQuad} and its vertex array without the vertex data, in bytes. */
+    private static final int QUAD_SIZE = 48;
+    /** The models baked from a template during the last resource reload, kept for incremental baking. */
+    private static volatile Map<ResourceLocation, Previous> previous = Map.of();
+
+    private final ModelBaker baker;
+    private final @Nullable BlockModel base;
+    private final boolean remap;
+    private final Map<Material, BakedModel> interned = new HashMap<>();
+    private final Map<Mask, Template> templates = new HashMap<>();
+    private final Map<Material, Deferred> deferred = new HashMap<>();
+    private final Map<Material, Remap> remaps = new HashMap<>();
+    private final Map<ResourceLocation, HashCode> hashes;
+    private final Map<ResourceLocation, Previous> current = new HashMap<>();
+    private int baked = 0;
+    private int reused = 0;
+    private int remapped = 0;
+    private int deferredModels = 0;
+    private long savedBytes = 0;
+    private int unchanged = 0;
+    private long remapNanos = 0;
+    private long remapWallNanos = 0;
+    private int remapThreads = 1;
+
+    EnchantedBookTemplateBaker(ModelBaker baker, boolean remap, Map<ResourceLocation, HashCode> hashes) {
+        this.baker = baker;
+        this.remap = remap;
+        this.hashes = hashes;
+        this.base = baker.getModel(ResourceLocation.parse(EnchantedBookOverrides.ENCHANTED_BOOK_UNBAKED_MODEL_NAME)) instanceof BlockModel model ? model : null;
+    }
+
+    /**
+     * Bakes the given model. If the model only swaps the texture of the base enchanted book model, the baked model of
+     * an earlier model with the same texture is returned instead, or the geometry of a template is reused if template
+     * baking is enabled.
+     *
+     * @param location The location of the model to bake
+     * @return The baked model, or {@code null} if baking failed
+     */
+    @Nullable BakedModel bake(ResourceLocation location) {
+        if (!(this.baker.getModel(location) instanceof BlockModel model) || !this.fitsTemplate(model)) {
+            this.baked++;
+            return this.baker.bake(location, BlockModelRotation.X0_Y0);
+        }
+
+        Material material = model.getMaterial("layer0");
+        @Nullable BakedModel interned = this.interned.get(material);
+        if (interned != null) {
+            this.reused++;
+            this.savedBytes += sizeOf(interned);
+            return interned;
+        }
+
+        TextureAtlasSprite sprite = this.baker.getModelTextureGetter().apply(material);
+        @Nullable HashCode hash = this.hashes.get(location);
+        @Nullable Previous previous = hash != null ? EnchantedBookTemplateBaker.previous.get(location) : null;
+
+        @Nullable BakedModel baked;
+        if (previous != null && previous.hash().equals(hash)) {
+            this.unchanged++;
+            baked = this.timed(previous.template(), sprite);
+            this.keep(location, hash, previous.template());
+        } else {
+            baked = this.bakeTemplated(location, sprite, hash);
+        }
+
+        if (baked != null) this.interned.put(material, baked);
+        return baked;
+    }
+
+    private @Nullable BakedModel bakeTemplated(ResourceLocation location, TextureAtlasSprite sprite, @Nullable HashCode hash) {
+        if (this.remap) {
+            Mask mask = Mask.of(sprite.contents());
+            @Nullable Template template = this.templates.get(mask);
+            if (template != null) {
+                this.remapped++;
+                this.keep(location, hash, template);
+                return this.timed(template, sprite);
+            }
+
+            this.baked++;
+            @Nullable BakedModel baked = this.baker.bake(location, BlockModelRotation.X0_Y0);
+            if (baked != null) {
+                template = new Template(baked, sprite);
+                this.templates.put(mask, template);
+                this.keep(location, hash, template);
+            }
+            return baked;
+        }
+
+        this.baked++;
+        @Nullable BakedModel baked = this.baker.bake(location, BlockModelRotation.X0_Y0);
+        if (baked != null) this.keep(location, hash, new Template(baked, sprite));
+        return baked;
+    }
+
+    private BakedModel timed(Template template, TextureAtlasSprite sprite) {
+        long start = System.nanoTime();
+        BakedModel remapped = template.remap(sprite);
+        long nanos = System.nanoTime() - start;
+        this.remapNanos += nanos;
+        this.remapWallNanos += nanos;
+        return remapped;
+    }
+
+    /**
+     * Plans the given model to be remapped later by {@link #remapAll(Map, BakeProfile)}, if it can be remapped from a
+     * template or from the last resource reload. Models that use the same texture share the same remap.
+     *
+     * @param location The location of the model to plan
+     * @return The planned remap, or {@code null} if the model must be {@linkplain #bake(ResourceLocation) baked} instead
+     */
+    @Nullable Remap remap(ResourceLocation location) {
+        if (!(this.baker.getModel(location) instanceof BlockModel model) || !this.fitsTemplate(model)) return null;
+
+        Material material = model.getMaterial("layer0");
+        @Nullable Remap remap = this.remaps.get(material);
+        if (remap != null) {
+            this.reused++;
+            return remap;
+        }
+
+        // the texture was already baked normally, so the model shares that instead
+        if (this.interned.containsKey(material)) return null;
+
+        TextureAtlasSprite sprite = this.baker.getModelTextureGetter().apply(material);
+        @Nullable HashCode hash = this.hashes.get(location);
+        @Nullable Previous previous = hash != null ? EnchantedBookTemplateBaker.previous.get(location) : null;
+
+        Template template;
+        if (previous != null && previous.hash().equals(hash)) {
+            this.unchanged++;
+            template = previous.template();
+        } else {
+            @Nullable Template existing = this.remap ? this.templates.get(Mask.of(sprite.contents())) : null;
+
+            // the first model of each mask is baked normally, and becomes the template of every following one
+            if (existing == null) return null;
+
+            this.remapped++;
+            template = existing;
+        }
+
+        this.keep(location, hash, template);
+        remap = new Remap(template, sprite);
+        this.remaps.put(material, remap);
+        return remap;
+    }
+
+    /**
+     * Remaps every planned model in parallel on the common fork-join pool. Models that share a texture share a remap,
+     * which is only done once, and every model is recorded in the given profile.
+     *
+     * @param remaps  The planned remaps by the NEBs ID of their model
+     * @param profile The profile to record the remaps in
+     * @return The remapped models by the NEBs ID of their model
+     */
+    Map<String, BakedModel> remapAll(Map<String, Remap> remaps, BakeProfile profile) {
+        Map<Remap, String> distinct = new IdentityHashMap<>();
+        remaps.forEach((id, remap) -> distinct.putIfAbsent(remap, id));
+
+        long start = System.nanoTime();
+        distinct.entrySet().parallelStream().forEach(entry -> entry.getKey().bake(entry.getValue(), profile));
+        this.remapWallNanos += System.nanoTime() - start;
+        this.remapThreads = ForkJoinPool.getCommonPoolParallelism() + 1;
+
+        Map<String, BakedModel> baked = new HashMap<>(remaps.size());
+        remaps.forEach((id, remap) -> {
+            if (distinct.get(remap).equals(id)) {
+                this.remapNanos += remap.nanos;
+            } else {
+                // shared with another model, so it cost nothing
+                profile.baked(id, 0, true);
+                this.savedBytes += sizeOf(remap.baked);
+            }
+
+            baked.put(id, remap.baked);
+        });
+
+        return baked;
+    }
+
+    /**
+     * Keeps the template a model was baked from for the next resource reload. Only normally baked models are kept as
+     * templates, never a model remapped from one, so that the models of one reload never hold on to those of the last.
+     *
+     * @param location The location of the model
+     * @param hash     The content hash of the model, or {@code null} if incremental baking is disabled
+     * @param template The template the model was baked from, or the model itself if it was baked normally
+     */
+    private void keep(ResourceLocation location, @Nullable HashCode hash, Template template) {
+        if (hash != null) this.current.put(location, new Previous(hash, template));
+    }
+
+    /**
+     * Defers the given model, so that it can be baked later without the model baker. If the model only swaps the texture
+     * of the base enchanted book model, a template is baked now for the transparency mask of its texture if there is
+     * none yet, and the model is later remapped from that template onto its sprite. Models that use the same texture
+     * share the same deferred model.
+     *
+     * @param location The location of the model to defer
+     * @return The deferred model, or {@code null} if the model cannot be baked from a template and must be baked now
+     */
+    @Nullable Deferred defer(ResourceLocation location) {
+        if (!(this.baker.getModel(location) instanceof BlockModel model) || !this.fitsTemplate(model)) return null;
+
+        Material material = model.getMaterial("layer0");
+        @Nullable Deferred deferred = this.deferred.get(material);
+        if (deferred != null) {
+            this.reused++;
+            return deferred;
+        }
+
+        TextureAtlasSprite sprite = this.baker.getModelTextureGetter().apply(material);
+        Mask mask = Mask.of(sprite.contents());
+        @Nullable Template template = this.templates.get(mask);
+        if (template == null) {
+            this.baked++;
+            @Nullable BakedModel baked = this.baker.bake(location, BlockModelRotation.X0_Y0);
+            if (baked == null) return null;
+
+            template = new Template(baked, sprite);
+            this.templates.put(mask, template);
+        }
+
+        this.deferredModels++;
+        deferred = new Deferred(template, material);
+        this.deferred.put(material, deferred);
+        return deferred;
+    }
+
+    /**
+     * Finishes baking, keeping the models baked from a template for the next resource reload. Then logs how many models
+     * were baked, how many of them were shared with another model of the same texture, and how many of them reused the
+     * geometry of a template or of the last reload. The time spent remapping is logged and recorded in the given
+     * profile, along with the time the same remaps took in total, so that serial and parallel bakes can be compared.
+     *
+     * @param profile The profile of this reload
+     */
+    void finish(BakeProfile profile) {
+        // always replace the previous models, so that they are released once incremental baking is disabled
+        EnchantedBookTemplateBaker.previous = this.hashes.isEmpty() ? Map.of() : Map.copyOf(this.current);
+
+        if (this.deferredModels > 0)
+            NekosEnchantedBooks.LOGGER.info("Deferred {} enchanted book models for lazy baking from {} templates, baked {} enchanted book models now", this.deferredModels, this.templates.size(), this.baked);
+        else
+            NekosEnchantedBooks.LOGGER.info("Baked {} enchanted book models, skipped {} bakes for models sharing a texture (~{} bytes of quads saved) and remapped {} from templates", this.baked, this.reused, this.savedBytes, this.remapped);
+        if (this.remapWallNanos > 0) {
+            profile.remapped(this.remapWallNanos, this.remapNanos, this.remapThreads);
+            NekosEnchantedBooks.LOGGER.info("Remapped enchanted book models in {} us on {} thread(s), out of {} us spent remapping in total", this.remapWallNanos / 1_000, this.remapThreads, this.remapNanos / 1_000);
+        }
+        if (!this.hashes.isEmpty())
+            NekosEnchantedBooks.LOGGER.info("Incremental baking reused {} unchanged enchanted book models and rebaked {}", this.unchanged, this.baked + this.remapped);
+    }
+
+    /**
+     * Estimates the size of the quads of the given baked model, which is the memory that is saved when the model is
+     * shared instead of being baked again. Only the vertex data and the quad objects themselves are counted.
+     *
+     * @param model The baked model to estimate the size of
+     * @return The estimated size of the quads in bytes
+     */
+    private static long sizeOf(BakedModel model) {
+        long size = 0;
+        for (BakedQuad quad : model.getQuads(null, null, RANDOM)) {
+            size += QUAD_SIZE + (long) quad.getVertices().length * Integer.BYTES;
+        }
+        for (Direction direction : Direction.values()) {
+            for (BakedQuad quad : model.getQuads(null, direction, RANDOM)) {
+                size += QUAD_SIZE + (long) quad.getVertices().length * Integer.BYTES;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Checks if the given model only swaps the {@code layer0} texture of the base enchanted book model. Anything else,
+     * such as its own elements, overrides, display transforms or render type, means that it must be baked normally.
+     *
+     * @param model The model to check
+     * @return If the model can reuse the geometry of a template
+     */
+    private boolean fitsTemplate(BlockModel model) {
+        if (this.base == null || !EnchantedBookOverrides.ENCHANTED_BOOK_UNBAKED_MODEL_NAME.equals(String.valueOf(model.getParentLocation())))
+            return false;
+
+        if (!model.textureMap.keySet().equals(Set.of("layer0")) || !model.getOverrides().isEmpty() || !model.getElements().isEmpty())
+            return false;
+
+        if (model.getGuiLight() != this.base.getGuiLight() || model.hasAmbientOcclusion() != this.base.hasAmbientOcclusion()
+            || !Objects.equals(model.customData.getRenderTypeHint(), this.base.customData.getRenderTypeHint()))
+            return false;
+
+        ItemTransforms transforms = model.getTransforms(), baseTransforms = this.base.getTransforms();
+        for (ItemDisplayContext context : ItemDisplayContext.values()) {
+            if (!transforms.getTransform(context).equals(baseTransforms.getTransform(context)))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * The transparency mask of a sprite, which is the union of the opaque pixels across all of its unique frames. This
+     * is everything that the item model generator takes into account when generating the geometry of a layer.
+     *
+     * @param width  The width of the sprite
+     * @param height The height of the sprite
+     * @param opaque The opaque pixels of the sprite, indexed by {@code y * width + x}
+     */
+    private record Mask(int width, int height, BitSet opaque) {
+        static Mask of(SpriteContents contents) {
+            int width = contents.width(), height = contents.height();
+            BitSet opaque = new BitSet(width * height);
+            contents.getUniqueFrames().forEach(frame -> {
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        if (!contents.isTransparent(frame, x, y)) opaque.set(y * width + x);
+                    }
+                }
+            });
+
+            return new Mask(width, height, opaque);
+        }
+    }
+
+    /**
+     * A normally baked model whose quads are reused for every other model with the same transparency mask.
+     *
+     * @param model  The baked template model
+     * @param sprite The sprite the template model was baked with
+     */
+    private record Template(BakedModel model, TextureAtlasSprite sprite) {
+        /**
+         * Remaps the quads of this template onto the given sprite. This is safe to call from any thread.
+         *
+         * @param target The sprite to remap the quads onto
+         * @return The remapped model
+         */
+        BakedModel remap(TextureAtlasSprite target) {
+            // the shared random source must not be used from several threads at once
+            RandomSource random = RandomSource.create();
+            List<BakedQuad> unculled = this.remap(null, target, random);
+            Map<Direction, List<BakedQuad>> culled = new EnumMap<>(Direction.class);
+            for (Direction direction : Direction.values()) {
+                culled.put(direction, this.remap(direction, target, random));
+            }
+
+            return new RemappedModel(this.model, target, unculled, culled);
+        }
+
+        private List<BakedQuad> remap(@Nullable Direction direction, TextureAtlasSprite target, RandomSource random) {
+            List<BakedQuad> quads = this.model.getQuads(null, direction, random);
+            if (quads.isEmpty()) return List.of();
+
+            List<BakedQuad> remapped = new ArrayList<>(quads.size());
+            for (BakedQuad quad : quads) {
+                int[] vertices = quad.getVertices().clone();
+                for (int i = 0; i < 4; i++) {
+                    int offset = i * IQuadTransformer.STRIDE + IQuadTransformer.UV0;
+                    vertices[offset] = Float.floatToRawIntBits(target.getU(this.sprite.getUOffset(Float.intBitsToFloat(vertices[offset]))));
+                    vertices[offset + 1] = Float.floatToRawIntBits(target.getV(this.sprite.getVOffset(Float.intBitsToFloat(vertices[offset + 1]))));
+                }
+
+                remapped.add(new BakedQuad(vertices, quad.getTintIndex(), quad.getDirection(), target, quad.isShade(), quad.hasAmbientOcclusion()));
+            }
+
+            return remapped;
+        }
+    }
+
+    /**
+     * A model baked from a template during the last resource reload. Only its template is kept, which is remapped onto
+     * the sprite of the model in the next reload.
+     *
+     * @param hash     The content hash of the model and texture files the model was baked from
+     * @param template The template the model was baked from, which is always a normally baked model
+     */
+    private record Previous(HashCode hash, Template template) { }
+
+    /**
+     * A model that is remapped from its template onto its sprite in parallel with other models. It is only ever remapped
+     * by a single thread, and only read once every remap has finished.
+     */
+    static final class Remap {
+        private final Template template;
+        private final TextureAtlasSprite sprite;
+        private BakedModel baked;
+        private long nanos;
+
+        private Remap(Template template, TextureAtlasSprite sprite) {
+            this.template = template;
+            this.sprite = sprite;
+        }
+
+        private void bake(String id, BakeProfile profile) {
+            EnchantedBookEvents.Bake event = new EnchantedBookEvents.Bake(id);
+            event.begin();
+            long start = System.nanoTime();
+            this.baked = this.template.remap(this.sprite);
+            this.nanos = System.nanoTime() - start;
+            profile.baked(id, this.nanos, true);
+            event.finish(true);
+        }
+    }
+
+    /**
+     * A model that is baked on demand by remapping its template onto its sprite, which is looked up in the texture atlas
+     * once the model is baked. It only holds its template and the material of its texture, so the model baker and the
+     * model bakery behind it can be released once the resource reload is done. The baked model is kept, so that every
+     * model sharing the same texture also shares the same baked model. It is not thread-safe, so callers must bake it
+     * under their own lock.
+     */
+    static final class Deferred {
+        private final Template template;
+        private final Material material;
+        private @Nullable BakedModel baked;
+
+        private Deferred(Template template, Material material) {
+            this.template = template;
+            this.material = material;
+        }
+
+        /** @return The baked model, remapped from the template onto the sprite of the texture */
+        BakedModel bake() {
+            if (this.baked == null) this.baked = this.template.remap(this.material.sprite());
+            return this.baked;
+        }
+    }
+
+    /**
+     * A model that shares everything with its template except for its quads and particle sprite.
+     */
+    @SuppressWarnings("deprecation") // We are implementing deprecated methods
+    private static final class RemappedModel implements BakedModel {
+        private final BakedModel template;
+        private final TextureAtlasSprite sprite;
+        private final List<BakedQuad> unculled;
+        private final Map<Direction, List<BakedQuad>> culled;
+
+        private RemappedModel(BakedModel template, TextureAtlasSprite sprite, List<BakedQuad> unculled, Map<Direction, List<BakedQuad>> culled) {
+            this.template = template;
+            this.sprite = sprite;
+            this.unculled = unculled;
+            this.culled = culled;
+        }
+
+        @Override
+        public List<BakedQuad> getQuads(@Nullable BlockState state, @Nullable Direction direction, RandomSource random) {
+            return direction == null ? this.unculled : this.culled.get(direction);
+        }
+
+        @Override
+        public boolean useAmbientOcclusion() {
+            return this.template.useAmbientOcclusion();
+        }
+
+        @Override
+        public boolean isGui3d() {
+            return this.template.isGui3d();
+        }
+
+        @Override
+        public boolean usesBlockLight() {
+            return this.template.usesBlockLight();
+        }
+
+        @Override
+        public boolean isCustomRenderer() {
+            return this.template.isCustomRenderer();
+        }
+
+        @Override
+        public TextureAtlasSprite getParticleIcon() {
+            return this.sprite;
+        }
+
+        @Override
+        public ItemTransforms getTransforms() {
+            return this.template.getTransforms();
+        }
+
+        @Override
+        public ItemOverrides getOverrides() {
+            return this.template.getOverrides();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.infernalstudios.nebs;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+
+import java.util.List;
+
+/**
+ * <h1>Neko's Enchanted Books Config</h1>
+ * This is the client config for NEBs. Every option in here tweaks how NEBs loads its enchanted book models, or what it
+ * reports about them, and the defaults always match how NEBs behaves without a config.
+ *
+ * @since 2.0.4
+ */
+final class NekosEnchantedBooksConfig {
+    static final ForgeConfigSpec SPEC;
+
+    /** Whether enchanted book models should be baked the first time they are needed, instead of all at once. */
+    static final ForgeConfigSpec.BooleanValue LAZY_BAKING;
+    /** Whether enchanted book models that only swap their texture should reuse the geometry of a template. */
+    static final ForgeConfigSpec.BooleanValue TEMPLATE_BAKING;
+    /** Whether enchanted book models remapped from a template should be remapped in parallel across all available cores. */
+    static final ForgeConfigSpec.BooleanValue PARALLEL_BAKING;
+    /** Whether enchanted book models whose files have not changed should reuse their geometry from the last reload. */
+    static final ForgeConfigSpec.BooleanValue INCREMENTAL_BAKING;
+    /** The namespaces whose enchanted book models are always loaded, even if no mod with that ID is loaded. */
+    static final ForgeConfigSpec.ConfigValue<List<? extends String>> KEPT_NAMESPACES;
+    /** Whether the discovered enchanted book models should be cached on disk between launches. */
+    static final ForgeConfigSpec.BooleanValue CACHE_DISCOVERY;
+    /** Whether a summary of the resolution stats should be shown on the debug overlay. */
+    static final ForgeConfigSpec.BooleanValue DEBUG_OVERLAY;
+
+    static {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+
+        builder.push("baking");
+        LAZY_BAKING = builder
+            .comment("Bake enchanted book models the first time they are rendered, instead of on every resource reload.",
+                     "Only one template per texture shape is baked during the reload, and each model is remapped from it when first seen.",
+                     "Models that do more than swap the texture of the base enchanted book model are always baked during the reload.")
+            .define("lazy", false);
+        TEMPLATE_BAKING = builder
+            .comment("Reuse the baked geometry of enchanted book models whose textures share the same transparent pixels.",
+                     "Models that do more than swap the texture of the base enchanted book model are always baked normally.")
+            .define("template", false);
+        PARALLEL_BAKING = builder
+            .comment("Remap enchanted book models from their templates in parallel across all available cores, instead of one after the other.",
+                     "Only applies to models reused from a template or from the last resource reload, since baking a model from scratch is not thread-safe.",
+                     "The time taken by either mode is logged, so the two can be compared in your own pack.")
+            .define("parallel", false);
+        INCREMENTAL_BAKING = builder
+            .comment("Reuse the baked geometry of enchanted book models whose model and texture files have not changed since the last resource reload.",
+                     "This makes iterating on a single texture with F3+T faster, at the cost of hashing the model and texture files on every reload.")
+            .define("incremental", false);
+        KEPT_NAMESPACES = builder
+            .comment("Enchanted book models bundled with NEBs are only loaded for mods that are loaded, where the mod ID is the first part of the NEBs ID.",
+                     "Models from resource packs, and models for enchantments of the last joined world, are always loaded.",
+                     "Add any namespaces here whose models should always be loaded, such as enchantments from data packs or those registered under a different mod ID.")
+            .defineListAllowEmpty(List.of("keptNamespaces"), List.of(), namespace -> namespace instanceof String);
+        CACHE_DISCOVERY = builder
+            .comment("Cache the list of enchanted book models in the game directory, so it does not have to be listed from the resource packs on every launch.",
+                     "The cache is thrown away whenever the enabled resource packs, any mod file or any enchanted book model in a resource pack folder changes.",
+                     "Nothing is cached while a resource pack is enabled that NEBs cannot check for changes, such as a server resource pack.")
+            .define("cache", false);
+        builder.pop();
+
+        builder.push("debug");
+        DEBUG_OVERLAY = builder
+            .comment("Show how enchanted books are resolved, and how long it takes, on the debug overlay (F3).",
+                     "Stats are only collected while the debug overlay is open, or between /nebs stats start and /nebs stats stop.",
+                     "The same stats, and more, are printed by the client command /nebs stats.")
+            .define("overlay", false);
+        builder.pop();
+
+        SPEC = builder.build();
+    }
+
+    /**
+     * Gets the value of the given option. Models may be baked before Forge has loaded the client config, in which case
+     * the default value of the option is used instead.
+     *
+     * @param value The option to get the value of
+     * @param <T>   The type of the option
+     * @return The value of the option
+     */
+    static <T> T get(ForgeConfigSpec.ConfigValue<T> value) {
+        return SPEC.isLoaded() ? value.get() : value.getDefault();
+    }
+
+    private NekosEnchantedBooksConfig() { }
+}
@@ -0,0 +1,98 @@
+package org.infernalstudios.nebs.benchmark;
+
+import org.infernalstudios.nebs.benchmark.SyntheticRegistry.Enchantment;
+import org.infernalstudios.nebs.core.TagListResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Get Enchantments Benchmark</h1>
+ * Measures the cost of resolving the stored enchantments of a book on the versions before data components, where they
+ * are a list of compound tags holding the enchantment's registry key and level. The books are resolved through the
+ * {@link TagListResolver} of the mod, with only the tags themselves stood in for by {@linkplain SyntheticTags plain
+ * lists and maps}. For comparison, the list is also fully deserialized into an enchantment to level map first, like
+ * {@code EnchantmentHelper.deserializeEnchantments} does, before its enchantments are looked up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GetEnchantmentsBenchmark {
+    private static final int BOOKS = 1024;
+
+    @Param({"50", "500", "5000"})
+    public int registrySize;
+
+    @Param({"1", "5", "20"})
+    public int enchantmentsPerBook;
+
+    /** If {@code false}, no enchantment has an override, so every lookup walks the whole list and falls back. */
+    @Param({"true", "false"})
+    public boolean overrides;
+
+    private SyntheticRegistry registry;
+    private SyntheticTags adapter;
+    private SyntheticOverrides engine;
+    private TagListResolver<List<Map<String, Object>>, Enchantment, Object> resolver;
+    private List<List<Map<String, Object>>> books;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.registry = new SyntheticRegistry(this.registrySize);
+        this.adapter = new SyntheticTags(this.registry);
+        this.engine = new SyntheticOverrides(this.registry, this.overrides);
+        this.resolver = this.engine.tags(this.adapter);
+        this.books = SyntheticTags.write(this.registry.books(BOOKS, this.enchantmentsPerBook, 42L));
+
+        // warm the memo, like a few frames of rendering would
+        this.books.forEach(this.resolver::resolve);
+    }
+
+    private List<Map<String, Object>> nextBook() {
+        List<Map<String, Object>> book = this.books.get(this.next);
+        this.next = (this.next + 1) & (BOOKS - 1);
+        return book;
+    }
+
+    /** The steady state of rendering, where the list is hashed to check that it has not been edited since. */
+    @Benchmark
+    public Object resolve() {
+        return this.resolver.resolve(this.nextBook());
+    }
+
+    /** A memo miss, where the list is walked by index until an override is found. */
+    @Benchmark
+    public Object walkList() {
+        return this.resolver.find(this.nextBook());
+    }
+
+    /** Decodes the whole list before looking up any of its enchantments, which is what the mod avoids. */
+    @Benchmark
+    public Object deserialize() {
+        List<Map<String, Object>> book = this.nextBook();
+        Map<Enchantment, Integer> enchantments = new LinkedHashMap<>();
+        for (int i = 0; i < this.adapter.sizeOf(book); i++) {
+            Enchantment enchantment = this.adapter.enchantmentOf(this.adapter.idAt(book, i));
+            if (enchantment != null) enchantments.put(enchantment, this.adapter.levelAt(book, i));
+        }
+
+        for (Map.Entry<Enchantment, Integer> enchantment : enchantments.entrySet()) {
+            Object override = this.engine.lookup(enchantment.getKey(), enchantment.getValue());
+            if (override != null) return override;
+        }
+
+        return null;
+    }
+}
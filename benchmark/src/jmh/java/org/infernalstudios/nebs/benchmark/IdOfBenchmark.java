@@ -0,0 +1,49 @@
+package org.infernalstudios.nebs.benchmark;
+
+import org.infernalstudios.nebs.benchmark.SyntheticRegistry.Enchantment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>ID Of Benchmark</h1>
+ * Measures the cost of deriving the NEBs ID of every enchantment in a registry, which is what building the lookup table
+ * on login costs, and what every lookup costs on versions without one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdOfBenchmark {
+    @Param({"50", "500", "5000"})
+    public int registrySize;
+
+    private SyntheticRegistry registry;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.registry = new SyntheticRegistry(this.registrySize);
+    }
+
+    @Benchmark
+    public void idOfDescription(Blackhole blackhole) {
+        for (Enchantment enchantment : this.registry.enchantments) {
+            blackhole.consume(SyntheticOverrides.idOfDescription(enchantment.description()));
+        }
+    }
+
+    @Benchmark
+    public void idOfKey(Blackhole blackhole) {
+        for (Enchantment enchantment : this.registry.enchantments) {
+            blackhole.consume(SyntheticOverrides.idOfKey(enchantment.key()));
+        }
+    }
+}
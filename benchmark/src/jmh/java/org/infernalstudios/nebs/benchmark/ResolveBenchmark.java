@@ -0,0 +1,75 @@
+package org.infernalstudios.nebs.benchmark;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.infernalstudios.nebs.benchmark.SyntheticRegistry.Enchantment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Resolve Benchmark</h1>
+ * Measures the cost of resolving the override of a single enchanted book, which is what every rendered book costs. Each
+ * invocation resolves the next book of a fixed set of random books, so that the lookups are not all served from the
+ * same cache lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResolveBenchmark {
+    private static final int BOOKS = 1024;
+
+    @Param({"50", "500", "5000"})
+    public int registrySize;
+
+    @Param({"1", "5", "20"})
+    public int enchantmentsPerBook;
+
+    /** If {@code false}, no enchantment has an override, so every lookup walks the whole book and falls back. */
+    @Param({"true", "false"})
+    public boolean overrides;
+
+    private SyntheticOverrides engine;
+    private List<Object2IntOpenHashMap<Enchantment>> books;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticRegistry registry = new SyntheticRegistry(this.registrySize);
+        this.engine = new SyntheticOverrides(registry, this.overrides);
+        this.books = registry.books(BOOKS, this.enchantmentsPerBook, 42L);
+
+        // warm the memo and the resolution cache, like a few frames of rendering would
+        this.books.forEach(this.engine::resolve);
+        this.books.forEach(this.engine::resolveStale);
+    }
+
+    private Object2IntOpenHashMap<Enchantment> nextBook() {
+        Object2IntOpenHashMap<Enchantment> book = this.books.get(this.next);
+        this.next = (this.next + 1) & (BOOKS - 1);
+        return book;
+    }
+
+    @Benchmark
+    public Object resolve() {
+        return this.engine.resolve(this.nextBook());
+    }
+
+    @Benchmark
+    public Object resolveUncached() {
+        return this.engine.resolveUncached(this.nextBook());
+    }
+
+    @Benchmark
+    public Object resolveStale() {
+        return this.engine.resolveStale(this.nextBook());
+    }
+}
@@ -0,0 +1,146 @@
+package org.infernalstudios.nebs.benchmark;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.infernalstudios.nebs.benchmark.SyntheticRegistry.Enchantment;
+import org.infernalstudios.nebs.core.EnchantmentAdapter;
+import org.infernalstudios.nebs.core.OverrideIds;
+import org.infernalstudios.nebs.core.OverrideResolver;
+import org.infernalstudios.nebs.core.TagListAdapter;
+import org.infernalstudios.nebs.core.TagListResolver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <h1>Synthetic Overrides</h1>
+ * The {@link OverrideResolver} of the mod, driven through an adapter for the {@linkplain SyntheticRegistry synthetic
+ * registry} instead of Minecraft. Baked models are replaced by plain objects, and the lookup table, resolution cache,
+ * memo and cursor are the very same code the mod runs, so that the cost of each path can be measured in isolation.
+ */
+final class SyntheticOverrides implements EnchantmentAdapter<SyntheticRegistry, Enchantment, Object> {
+    private final Map<String, Object> overrides;
+    private final OverrideResolver<SyntheticRegistry, Enchantment, Object> resolver;
+    /** A resolver without a lookup table, like the one of a stale registry or of lazy baking. */
+    private final OverrideResolver<SyntheticRegistry, Enchantment, Object> stale;
+    private final OverrideCursor cursor = new OverrideCursor();
+    private final Function<Object2IntOpenHashMap<Enchantment>, Object> finder = this::find;
+
+    /**
+     * @param registry  The registry to build the lookup table for
+     * @param overrides Whether every enchantment should have an override, or none of them
+     */
+    SyntheticOverrides(SyntheticRegistry registry, boolean overrides) {
+        this.overrides = new HashMap<>();
+        if (overrides) {
+            for (Enchantment enchantment : registry.enchantments) {
+                this.overrides.put(this.keyIdOf(enchantment), new Object());
+            }
+        }
+
+        this.resolver = new OverrideResolver<>(this, OverrideResolver.anyLevel(this.overrides.keySet()));
+        this.resolver.rebuild(registry, Arrays.asList(registry.enchantments));
+        this.stale = new OverrideResolver<>(this, this.resolver.isLeveled());
+    }
+
+    /** Mirrors {@code NekosEnchantedBooks.idOf(Enchantment)}. */
+    static String idOfDescription(String description) {
+        return OverrideIds.fromDescription(description);
+    }
+
+    /** Mirrors {@code NekosEnchantedBooks.idOf(ResourceKey)}. */
+    static String idOfKey(String key) {
+        int separator = key.indexOf(':');
+        return OverrideIds.fromKey(key.substring(0, separator), key.substring(separator + 1));
+    }
+
+    @Override
+    public int rawIdOf(SyntheticRegistry registry, Enchantment enchantment) {
+        return enchantment.id();
+    }
+
+    @Override
+    public String keyIdOf(Enchantment enchantment) {
+        return idOfKey(enchantment.key());
+    }
+
+    @Override
+    public String descriptionIdOf(Enchantment enchantment) {
+        return idOfDescription(enchantment.description());
+    }
+
+    @Override
+    public int maxLevelOf(Enchantment enchantment) {
+        return enchantment.maxLevel();
+    }
+
+    @Override
+    public Object overrideOf(String id) {
+        return this.overrides.get(id);
+    }
+
+    /** The steady state of rendering, where the stored enchantments of the stack have been seen before. */
+    Object resolve(Object2IntOpenHashMap<Enchantment> enchantments) {
+        return this.resolver.resolve(enchantments, this.finder);
+    }
+
+    /** Mirrors the finder of the mod, which is bound once so that resolving does not allocate a lambda. */
+    private Object find(Object2IntOpenHashMap<Enchantment> enchantments) {
+        return this.cursor.find(enchantments, this.resolver);
+    }
+
+    /** A memo miss, where every enchantment is looked up in the table. */
+    Object resolveUncached(Object2IntOpenHashMap<Enchantment> enchantments) {
+        return this.cursor.find(enchantments, this.resolver);
+    }
+
+    /** Looks up a single enchantment in the table, like every enchantment of a book costs on a memo miss. */
+    Object lookup(Enchantment enchantment, int level) {
+        return this.resolver.overrideOf(enchantment, this.resolver.isLeveled() ? level : 0);
+    }
+
+    /**
+     * Creates a resolver for the stored enchantments lists of the versions before data components, backed by the same
+     * lookup table as {@link #resolve(Object2IntOpenHashMap)}.
+     *
+     * @param adapter The adapter of the list tags
+     * @param <L>     The type of the list tags
+     * @return The tag list resolver
+     */
+    <L> TagListResolver<L, Enchantment, Object> tags(TagListAdapter<L, Enchantment> adapter) {
+        return new TagListResolver<>(this.resolver, adapter);
+    }
+
+    /** A memo miss with a stale table, where every enchantment goes through the resolution cache. */
+    Object resolveStale(Object2IntOpenHashMap<Enchantment> enchantments) {
+        return this.cursor.find(enchantments, this.stale);
+    }
+
+    /** Mirrors the cursor of the mod, which walks the key set of the map backing the stored enchantments component. */
+    private static final class OverrideCursor implements Consumer<Enchantment> {
+        private Object found;
+        private Object2IntOpenHashMap<Enchantment> enchantments;
+        private OverrideResolver<SyntheticRegistry, Enchantment, Object> resolver;
+
+        private Object find(Object2IntOpenHashMap<Enchantment> enchantments, OverrideResolver<SyntheticRegistry, Enchantment, Object> resolver) {
+            this.found = null;
+            this.enchantments = enchantments;
+            this.resolver = resolver;
+            enchantments.keySet().forEach(this);
+
+            Object found = this.found;
+            this.found = null;
+            this.enchantments = null;
+            return found;
+        }
+
+        @Override
+        public void accept(Enchantment enchantment) {
+            if (this.found == null) {
+                this.found = this.resolver.overrideOf(enchantment, this.resolver.isLeveled() ? this.enchantments.getInt(enchantment) : 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.infernalstudios.nebs.benchmark;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <h1>Synthetic Registry</h1>
+ * A stand-in for the enchantment registry, so that the benchmarks can run headless without bootstrapping Minecraft.
+ * Enchantments are spread across a handful of namespaces and are given a raw ID, a registry key and a description
+ * translation key, which is everything NEBs uses to identify them.
+ */
+final class SyntheticRegistry {
+    private static final String[] NAMESPACES = {"minecraft", "apotheosis", "ensorcellation", "enchantwithmob", "mymod"};
+
+    final Enchantment[] enchantments;
+    private final Map<String, Enchantment> byKey;
+
+    SyntheticRegistry(int size) {
+        this.enchantments = new Enchantment[size];
+        this.byKey = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String namespace = NAMESPACES[i % NAMESPACES.length];
+            String path = "enchantment_" + i;
+            Enchantment enchantment = new Enchantment(i, namespace + ":" + path, "enchantment." + namespace + "." + path, 1 + i % 5);
+            this.enchantments[i] = enchantment;
+            this.byKey.put(enchantment.key(), enchantment);
+        }
+    }
+
+    Enchantment byKey(String key) {
+        return this.byKey.get(key);
+    }
+
+    /**
+     * Creates random books, each carrying the given amount of distinct enchantments at random levels. The books are
+     * backed by the same map as the stored enchantments component.
+     *
+     * @param count        The amount of books to create
+     * @param enchantments The amount of enchantments on each book
+     * @param seed         The seed, so every run benchmarks the same books
+     * @return The created books
+     */
+    List<Object2IntOpenHashMap<Enchantment>> books(int count, int enchantments, long seed) {
+        Random random = new Random(seed);
+        List<Object2IntOpenHashMap<Enchantment>> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Object2IntOpenHashMap<Enchantment> book = new Object2IntOpenHashMap<>();
+            while (book.size() < Math.min(enchantments, this.enchantments.length)) {
+                Enchantment enchantment = this.enchantments[random.nextInt(this.enchantments.length)];
+                book.put(enchantment, 1 + random.nextInt(enchantment.maxLevel()));
+            }
+
+            books.add(book);
+        }
+
+        return books;
+    }
+
+    /**
+     * A synthetic enchantment. Instances are compared by identity, just like registry entries.
+     *
+     * @param id          The raw ID in the registry
+     * @param key         The registry key, such as {@code minecraft:sharpness}
+     * @param description The description translation key, such as {@code enchantment.minecraft.sharpness}
+     * @param maxLevel    The maximum level
+     */
+    record Enchantment(int id, String key, String description, int maxLevel) {
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.infernalstudios.nebs.benchmark;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.infernalstudios.nebs.benchmark.SyntheticRegistry.Enchantment;
+import org.infernalstudios.nebs.core.TagListAdapter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Synthetic Tags</h1>
+ * The {@link TagListAdapter} of the versions before data components, driven through plain lists and maps instead of
+ * Minecraft's list and compound tags. Each compound tag is a mutable map holding the registry key and level of an
+ * enchantment, read the same way the mod reads them from the stored enchantments list of a book.
+ */
+final class SyntheticTags implements TagListAdapter<List<Map<String, Object>>, Enchantment> {
+    private final SyntheticRegistry registry;
+
+    SyntheticTags(SyntheticRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Writes the given books as stored enchantments lists, like the game writes them into a stack's NBT.
+     *
+     * @param books The books to write
+     * @return The stored enchantments list of each book
+     */
+    static List<List<Map<String, Object>>> write(List<Object2IntOpenHashMap<Enchantment>> books) {
+        List<List<Map<String, Object>>> lists = new ArrayList<>(books.size());
+        for (Object2IntOpenHashMap<Enchantment> book : books) {
+            List<Map<String, Object>> list = new ArrayList<>(book.size());
+            book.object2IntEntrySet().forEach(entry -> {
+                Map<String, Object> tag = new HashMap<>();
+                tag.put("id", entry.getKey().key());
+                tag.put("lvl", (short) entry.getIntValue());
+                list.add(tag);
+            });
+
+            lists.add(list);
+        }
+
+        return lists;
+    }
+
+    @Override
+    public int sizeOf(List<Map<String, Object>> enchantments) {
+        return enchantments.size();
+    }
+
+    @Override
+    public String idAt(List<Map<String, Object>> enchantments, int index) {
+        return (String) enchantments.get(index).get("id");
+    }
+
+    @Override
+    public int levelAt(List<Map<String, Object>> enchantments, int index) {
+        return (short) enchantments.get(index).get("lvl");
+    }
+
+    @Override
+    public Enchantment enchantmentOf(String id) {
+        return this.registry.byKey(id);
+    }
+}
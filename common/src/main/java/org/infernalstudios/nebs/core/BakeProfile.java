@@ -0,0 +1,235 @@
+package org.infernalstudios.nebs.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>Bake Profile</h1>
+ * The timings of the enchanted book models for a single resource reload, so that the share of a slow reload that is
+ * spent on NEBs can be told apart from the rest of it. It covers the discovery of the models, the time it took to bake
+ * each one of them and how many were baked, failed to bake or were skipped because their mod is not loaded.
+ * <p>
+ * Recording is thread-safe, since models remapped from a template may be remapped in parallel, and so that the profile
+ * can be published before the bake is done. If models were remapped, the time it took is recorded along with the time
+ * every remap took in total, which tells how much a parallel remap saved. Once the reload is finished, the profile can
+ * be {@linkplain #write(Path) written} as JSON, so that it can be compared between pack updates.
+ *
+ * @since 2.0.4
+ */
+public final class BakeProfile {
+    /** The amount of the slowest models that are reported. */
+    public static final int SLOWEST = 10;
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger baked = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile int discovered;
+    private volatile int skipped;
+    private volatile long discoveryNanos;
+    private volatile long bakeNanos;
+    private volatile boolean lazy;
+    private volatile long remapNanos;
+    private volatile long remapSerialNanos;
+    private volatile int remapThreads;
+
+    /**
+     * Records the discovery of the models.
+     *
+     * @param models  The amount of models that were discovered
+     * @param skipped The amount of models that were skipped because their mod is not loaded
+     * @param nanos   The time the discovery took, in nanoseconds
+     */
+    public void discovered(int models, int skipped, long nanos) {
+        this.discovered = models;
+        this.skipped = skipped;
+        this.discoveryNanos = nanos;
+    }
+
+    /**
+     * Records the bake of a single model.
+     *
+     * @param id      The NEBs ID of the model
+     * @param nanos   The time the bake took, in nanoseconds
+     * @param success If the model was baked, or {@code false} if the baker returned nothing
+     */
+    public void baked(String id, long nanos, boolean success) {
+        this.spans.add(new Span(id, nanos));
+        (success ? this.baked : this.failed).incrementAndGet();
+    }
+
+    /**
+     * Finishes the profile once every model has been baked.
+     *
+     * @param nanos The time baking every model took, in nanoseconds
+     * @param lazy  If the models are baked lazily instead, in which case only those that could not be deferred have
+     *              been baked yet
+     */
+    public void finish(long nanos, boolean lazy) {
+        this.bakeNanos = nanos;
+        this.lazy = lazy;
+    }
+
+    /**
+     * Records the time spent remapping models from their templates, which may be done in parallel.
+     *
+     * @param nanos       The time remapping took, in nanoseconds
+     * @param serialNanos The time every remap took in total, which is what remapping one after the other would take
+     * @param threads     The amount of threads the models were remapped on
+     */
+    public void remapped(long nanos, long serialNanos, int threads) {
+        this.remapNanos = nanos;
+        this.remapSerialNanos = serialNanos;
+        this.remapThreads = threads;
+    }
+
+    /** @return The amount of models that were discovered */
+    public int discovered() {
+        return this.discovered;
+    }
+
+    /** @return The amount of models that were skipped because their mod is not loaded */
+    public int skipped() {
+        return this.skipped;
+    }
+
+    /** @return The amount of models that were baked */
+    public int baked() {
+        return this.baked.get();
+    }
+
+    /** @return The amount of models that failed to bake */
+    public int failed() {
+        return this.failed.get();
+    }
+
+    /** @return The time the discovery took, in nanoseconds */
+    public long discoveryNanos() {
+        return this.discoveryNanos;
+    }
+
+    /** @return The time baking every model took, in nanoseconds */
+    public long bakeNanos() {
+        return this.bakeNanos;
+    }
+
+    /** @return Every bake, in the order the models were baked */
+    public List<Span> spans() {
+        return new ArrayList<>(this.spans);
+    }
+
+    /** @return The {@value #SLOWEST} slowest bakes, slowest first */
+    public List<Span> slowest() {
+        List<Span> spans = this.spans();
+        spans.sort(Comparator.comparingLong(Span::nanos).reversed());
+        return spans.size() > SLOWEST ? new ArrayList<>(spans.subList(0, SLOWEST)) : spans;
+    }
+
+    /**
+     * Summarizes the profile in a single line for the log, with the {@value #SLOWEST} slowest bakes.
+     *
+     * @return The summary of the profile
+     */
+    public String summary() {
+        return String.format(Locale.ROOT, "Discovered %d enchanted book models in %d ms (skipped %d), baked %d in %d ms (failed %d), slowest: %s", this.discovered, this.discoveryNanos / 1_000_000, this.skipped, this.baked.get(), this.bakeNanos / 1_000_000, this.failed.get(), this.slowest());
+    }
+
+    /**
+     * Writes the profile to the given file as JSON. Every bake is written, along with the {@value #SLOWEST} slowest
+     * ones as a summary. The profile is written to a temporary file first, so that tools
+     * reading the file never see it half-written.
+     *
+     * @param file The file to write to
+     * @throws IOException If the file could not be written
+     */
+    public void write(Path file) throws IOException {
+        JsonObject discovery = new JsonObject();
+        discovery.addProperty("models", this.discovered);
+        discovery.addProperty("skipped", this.skipped);
+        discovery.addProperty("nanos", this.discoveryNanos);
+
+        JsonObject bake = new JsonObject();
+        bake.addProperty("lazy", this.lazy);
+        bake.addProperty("baked", this.baked.get());
+        bake.addProperty("failed", this.failed.get());
+        bake.addProperty("nanos", this.bakeNanos);
+        if (this.remapThreads > 0) {
+            JsonObject remap = new JsonObject();
+            remap.addProperty("threads", this.remapThreads);
+            remap.addProperty("nanos", this.remapNanos);
+            remap.addProperty("serialNanos", this.remapSerialNanos);
+            bake.add("remap", remap);
+        }
+        bake.add("models", toJson(this.spans()));
+        bake.add("slowest", toJson(this.slowest()));
+
+        JsonObject profile = new JsonObject();
+        profile.addProperty("time", Instant.now().toString());
+        profile.add("discovery", discovery);
+        profile.add("bake", bake);
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(profile, writer);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static JsonArray toJson(List<Span> spans) {
+        JsonArray array = new JsonArray();
+        for (Span span : spans) {
+            JsonObject model = new JsonObject();
+            model.addProperty("model", span.id());
+            model.addProperty("nanos", span.nanos());
+            array.add(model);
+        }
+
+        return array;
+    }
+
+    /** The time it took to bake a single model. */
+    public static final class Span {
+        private final String id;
+        private final long nanos;
+
+        private Span(String id, long nanos) {
+            this.id = id;
+            this.nanos = nanos;
+        }
+
+        /** @return The NEBs ID of the model */
+        public String id() {
+            return this.id;
+        }
+
+        /** @return The time the bake took, in nanoseconds */
+        public long nanos() {
+            return this.nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s (%.2f ms)", this.id, this.nanos / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.infernalstudios.nebs.core;
+
+/**
+ * <h1>Enchantment Adapter</h1>
+ * The bridge between the {@link OverrideResolver} and a specific version of Minecraft. The resolver itself does not
+ * know anything about Minecraft, so everything it needs to know about registries, enchantments and baked models is
+ * asked for through this interface, which each version implements in its own enchanted book model.
+ *
+ * @param <R> The type of the enchantment registry
+ * @param <E> The type of the enchantments as they are stored on a book
+ * @param <M> The type of the baked models
+ * @since 2.0.4
+ */
+public interface EnchantmentAdapter<R, E, M> {
+    /**
+     * Gets the raw ID of the given enchantment in the given registry.
+     *
+     * @param registry    The registry to get the raw ID from
+     * @param enchantment The enchantment to get the raw ID of
+     * @return The raw ID of the enchantment, or a negative number if it is not in the registry
+     */
+    int rawIdOf(R registry, E enchantment);
+
+    /**
+     * Gets the NEBs ID of the given enchantment derived from its registry key, which is always tried first.
+     *
+     * @param enchantment The enchantment to get the NEBs ID of
+     * @return The NEBs ID, or {@code null} if the enchantment has no registry key
+     */
+    String keyIdOf(E enchantment);
+
+    /**
+     * Gets the NEBs ID of the given enchantment derived from its description, which is used as an alias of the
+     * {@linkplain #keyIdOf(Object) registry key ID} for models named after a translation key that does not match it.
+     *
+     * @param enchantment The enchantment to get the NEBs ID of
+     * @return The NEBs ID, or {@code null} if the description is not translatable
+     */
+    String descriptionIdOf(E enchantment);
+
+    /**
+     * Gets the maximum level of the given enchantment, which is as far as level-specific models are looked up when the
+     * lookup table is built.
+     *
+     * @param enchantment The enchantment to get the maximum level of
+     * @return The maximum level
+     */
+    int maxLevelOf(E enchantment);
+
+    /**
+     * Gets the baked override for the given NEBs ID, baking it first if it has not been baked yet.
+     *
+     * @param id The NEBs ID to get the override of
+     * @return The baked override, or {@code null} if there is none or it failed to bake
+     */
+    M overrideOf(String id);
+}
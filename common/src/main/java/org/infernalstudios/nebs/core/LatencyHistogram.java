@@ -0,0 +1,98 @@
+package org.infernalstudios.nebs.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * <h1>Latency Histogram</h1>
+ * A fixed-size histogram of latencies in nanoseconds, laid out like an HDR histogram. Values below {@value #SUB_BUCKETS}
+ * are counted exactly, and every power of two above that is split into {@value #SUB_BUCKETS} linear buckets, so every
+ * recorded value is within 1/{@value #SUB_BUCKETS}th of its bucket no matter how large it is. Recording is a single
+ * atomic increment, and never allocates.
+ *
+ * @since 2.0.4
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    /** The amount of linear buckets every power of two is split into. */
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records the given latency.
+     *
+     * @param nanos The latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        this.counts.incrementAndGet(indexOf(value));
+        this.max.accumulate(value);
+    }
+
+    /** @return The amount of recorded latencies */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += this.counts.get(i);
+        }
+
+        return count;
+    }
+
+    /** @return The highest recorded latency, in nanoseconds */
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Gets the latency at the given percentile, which is the highest value of the bucket it falls in.
+     *
+     * @param percentile The percentile, between {@code 0} and {@code 100}
+     * @return The latency at the percentile in nanoseconds, or {@code 0} if nothing has been recorded
+     */
+    public long percentile(double percentile) {
+        long count = this.count();
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) return Math.min(highestValueOf(i), this.max());
+        }
+
+        return this.max();
+    }
+
+    /** Resets the histogram, throwing away every recorded latency. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+
+        this.max.reset();
+    }
+
+    /**
+     * Gets the bucket of the given value. The bucket is picked from the position of the highest set bit and the
+     * {@value #SUB_BITS} bits below it.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /** Gets the highest value that falls in the given bucket. */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package org.infernalstudios.nebs.core;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * <h1>Override Cursor</h1>
+ * A reusable cursor that walks the enchantments of a book, keeping the first override it finds. The cursor is itself
+ * the consumer handed to the walk, so that walking the enchantments of a book does not allocate anything once the
+ * cursor exists. How the enchantments are walked and how a single one is looked up is left to the version, which
+ * usually looks them up with {@link OverrideResolver#overrideOf(Object, int)}.
+ * <p>
+ * A cursor is not thread-safe, so a shared cursor must only ever be used from the same thread.
+ *
+ * @param <K> The type of the enchantments of a book, such as a component or a list of tags
+ * @param <E> The type of a single enchantment of a book
+ * @param <M> The type of the overrides
+ * @since 2.0.4
+ */
+public final class OverrideCursor<K, E, M> implements Consumer<E> {
+    private final BiConsumer<K, Consumer<E>> walker;
+    private final BiFunction<K, E, M> lookup;
+    private K enchantments;
+    private M found;
+
+    /**
+     * Creates a new cursor.
+     *
+     * @param walker The walker, which hands every enchantment of the given book to the given consumer, in order
+     * @param lookup The lookup, which gets the override of a single enchantment of the given book, or {@code null} if
+     *               it has none
+     */
+    public OverrideCursor(BiConsumer<K, Consumer<E>> walker, BiFunction<K, E, M> lookup) {
+        this.walker = walker;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Finds the override for the given enchantments. If the book has multiple enchantments, then the first one walked
+     * that has an override is what will be used.
+     *
+     * @param enchantments The enchantments of the book
+     * @return The override, or {@code null} if none of the enchantments have one
+     */
+    public M find(K enchantments) {
+        this.found = null;
+        this.enchantments = enchantments;
+        try {
+            this.walker.accept(enchantments, this);
+            return this.found;
+        } finally {
+            // never hold on to a book after it was resolved
+            this.found = null;
+            this.enchantments = null;
+        }
+    }
+
+    @Override
+    public void accept(E enchantment) {
+        if (this.found == null) this.found = this.lookup.apply(this.enchantments, enchantment);
+    }
+}
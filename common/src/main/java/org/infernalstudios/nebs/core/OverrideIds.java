@@ -0,0 +1,101 @@
+package org.infernalstudios.nebs.core;
+
+/**
+ * <h1>Override IDs</h1>
+ * Helpers for NEBs IDs, which are the names of the enchanted book models where every point is a folder separation. For
+ * example, the NEBs ID {@code minecraft.sharpness} is the model {@code assets/nebs/models/item/minecraft/sharpness.json}.
+ *
+ * @since 2.0.4
+ */
+public final class OverrideIds {
+    private static final String DESCRIPTION_PREFIX = "enchantment.";
+
+    /**
+     * Gets the NEBs ID of the given description translation key, which is the key with the {@code enchantment.} prefix
+     * removed if it exists.
+     *
+     * @param description The description translation key of the enchantment
+     * @return The NEBs ID
+     */
+    public static String fromDescription(String description) {
+        return description.startsWith(DESCRIPTION_PREFIX) ? description.substring(DESCRIPTION_PREFIX.length()) : description;
+    }
+
+    /**
+     * Gets the NEBs ID of the given registry key, which is its namespace and path joined by a point, with every folder
+     * separation in the path also replaced by a point.
+     *
+     * @param namespace The namespace of the registry key
+     * @param path      The path of the registry key
+     * @return The NEBs ID
+     */
+    public static String fromKey(String namespace, String path) {
+        return namespace + "." + path.replace('/', '.');
+    }
+
+    /**
+     * Appends the given level to the given NEBs ID, so that {@code minecraft.sharpness} at level 5 becomes
+     * {@code minecraft.sharpness.5}, which is the model at {@code assets/nebs/models/item/minecraft/sharpness/5.json}.
+     *
+     * @param id    The NEBs ID of the enchantment, may be {@code null}
+     * @param level The level, or {@code 0} to keep the NEBs ID as it is
+     * @return The NEBs ID of the level, or {@code null} if the given NEBs ID was {@code null}
+     */
+    public static String withLevel(String id, int level) {
+        return id == null || level == 0 ? id : id + "." + level;
+    }
+
+    /**
+     * Checks if the given NEBs ID is for a specific level of an enchantment, which is the case if its last part is a
+     * number.
+     *
+     * @param id The NEBs ID to check
+     * @return If the NEBs ID is for a specific level
+     */
+    public static boolean isLevel(String id) {
+        int separator = id.lastIndexOf('.');
+        if (separator < 0 || separator == id.length() - 1) return false;
+
+        for (int i = separator + 1; i < id.length(); i++) {
+            if (!Character.isDigit(id.charAt(i))) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the namespace of the given NEBs ID, which is its first part and almost always the ID of the mod that
+     * registers the enchantment.
+     *
+     * @param id The NEBs ID
+     * @return The namespace of the NEBs ID
+     */
+    public static String namespaceOf(String id) {
+        int separator = id.indexOf('.');
+        return separator < 0 ? id : id.substring(0, separator);
+    }
+
+    /**
+     * Removes the level from the given NEBs ID if it is {@linkplain #isLevel(String) for a specific level}, so that
+     * {@code minecraft.sharpness.5} becomes {@code minecraft.sharpness}.
+     *
+     * @param id The NEBs ID
+     * @return The NEBs ID of the enchantment without its level
+     */
+    public static String withoutLevel(String id) {
+        return isLevel(id) ? id.substring(0, id.lastIndexOf('.')) : id;
+    }
+
+    /**
+     * Packs the given raw ID and level into a single key for the level lookup of an {@link OverrideResolver}.
+     *
+     * @param id    The raw ID of the enchantment
+     * @param level The level of the enchantment
+     * @return The packed key
+     */
+    static long pack(int id, int level) {
+        return (long) id << 32 | (level & 0xFFFFFFFFL);
+    }
+
+    private OverrideIds() { }
+}
@@ -0,0 +1,90 @@
+package org.infernalstudios.nebs.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <h1>Override Models</h1>
+ * Decides which enchanted book models are prepared and which enchantments are missing one, which every version does the
+ * same way. Anything that needs the game, such as the NEBs IDs of an enchantment or if a model file is bundled with
+ * NEBs, is passed in by the version.
+ *
+ * @since 2.0.4
+ */
+public final class OverrideModels {
+    /**
+     * Checks if the model for the given NEBs ID should be prepared. Only the models bundled with NEBs itself are ever
+     * pruned, and only if the {@linkplain OverrideIds#namespaceOf(String) namespace} of the model is not kept. A bundled
+     * model is also kept if it matches a registered enchantment, ignoring its level.
+     *
+     * @param id            The NEBs ID of the model
+     * @param keptNamespace If the given namespace is kept, which is the case if its mod is loaded or it is kept in the
+     *                      config
+     * @param registered    The NEBs IDs of the registered enchantments
+     * @param bundled       If the model file is only provided by NEBs itself, which is only checked if needed
+     * @return If the model should be prepared
+     */
+    public static boolean shouldPrepare(String id, Predicate<String> keptNamespace, Set<String> registered, BooleanSupplier bundled) {
+        if (keptNamespace.test(OverrideIds.namespaceOf(id))) return true;
+
+        return registered.contains(OverrideIds.withoutLevel(id)) || !bundled.getAsBoolean();
+    }
+
+    /**
+     * Gets the NEBs IDs of the given enchantments, by both their registry key and their description, so that their
+     * models are never pruned.
+     *
+     * @param enchantments  The registered enchantments
+     * @param keyId         The NEBs ID of an enchantment derived from its registry key, or {@code null} if it has none
+     * @param descriptionId The NEBs ID of an enchantment derived from its description, or {@code null} if it has none
+     * @param <E>           The type of the enchantments
+     * @return The NEBs IDs of the enchantments
+     */
+    public static <E> Set<String> registeredIds(Iterable<? extends E> enchantments, Function<? super E, String> keyId, Function<? super E, String> descriptionId) {
+        Set<String> ids = new HashSet<>();
+        for (E enchantment : enchantments) {
+            String key = keyId.apply(enchantment);
+            if (key != null) ids.add(key);
+            String id = descriptionId.apply(enchantment);
+            if (id != null) ids.add(id);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Gets the NEBs IDs of the given enchantments that are missing a model. An enchantment has a model if either of its
+     * NEBs IDs is textured. The registry key is what models should be named after, so that is what gets reported,
+     * unless the enchantment has none.
+     *
+     * @param enchantments  The registered enchantments
+     * @param keyId         The NEBs ID of an enchantment derived from its registry key, or {@code null} if it has none
+     * @param descriptionId The NEBs ID of an enchantment derived from its description, or {@code null} if it has none
+     * @param textured      The NEBs IDs that have a baked model
+     * @param ignored       The NEBs IDs that are not actual enchantments, which are never reported
+     * @param <E>           The type of the enchantments
+     * @return The reported NEBs IDs of the enchantments that are missing a model, sorted
+     */
+    public static <E> SortedSet<String> missing(Iterable<? extends E> enchantments, Function<? super E, String> keyId, Function<? super E, String> descriptionId, Set<String> textured, Set<String> ignored) {
+        SortedSet<String> missing = new TreeSet<>();
+        for (E enchantment : enchantments) {
+            String key = keyId.apply(enchantment);
+            String id = descriptionId.apply(enchantment);
+            if (key != null && textured.contains(key) || id != null && textured.contains(id))
+                continue;
+
+            String reported = key != null ? key : id;
+            if (reported != null && !ignored.contains(reported) && (id == null || !ignored.contains(id)))
+                missing.add(reported);
+        }
+
+        return missing;
+    }
+
+    private OverrideModels() { }
+}
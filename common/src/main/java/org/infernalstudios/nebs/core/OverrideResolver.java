@@ -0,0 +1,266 @@
+package org.infernalstudios.nebs.core;
+
+import com.google.common.collect.MapMaker;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * <h1>Override Resolver</h1>
+ * This is the version-agnostic heart of the override resolution, which picks the baked override for an enchanted book.
+ * It does not know anything about Minecraft, and instead asks the {@link EnchantmentAdapter} of each version for
+ * anything it needs. It has three layers, from fastest to slowest:
+ * <ul>
+ *     <li>A memo of the stored enchantments of each book, held by identity, so repeated renders of the same stack only
+ *     cost a single lookup. Stored enchantments that can be edited in place, like NBT, are memoized along with a hash
+ *     of their contents. The memo holds its keys weakly and is cleared once it grows past {@value #MEMO_SIZE}
+ *     entries.</li>
+ *     <li>A lookup table compiled for the enchantment registry, which is a dense array of baked overrides indexed by each
+ *     enchantment's raw ID, alongside a primitive map of level-specific overrides keyed by raw ID and level packed
+ *     into a single {@code long}.</li>
+ *     <li>A resolution cache, used if the table is missing or stale, where the NEBs ID of each enchantment is resolved
+ *     once and the result is cached by the identity of the enchantment.</li>
+ * </ul>
+ * Each enchantment is looked up by the NEBs ID of its registry key first, and then by the NEBs ID of its description.
+ * If a book has multiple enchantments, then the first one found that has an override is what will be used.
+ *
+ * @param <R> The type of the enchantment registry
+ * @param <E> The type of the enchantments as they are stored on a book
+ * @param <M> The type of the baked models
+ * @since 2.0.4
+ */
+public final class OverrideResolver<R, E, M> {
+    /** The maximum amount of stored enchantments to memoize before the memo is cleared. */
+    public static final int MEMO_SIZE = 1024;
+
+    private final EnchantmentAdapter<R, E, M> adapter;
+    private final boolean leveled;
+    private final ResolutionStats stats = new ResolutionStats();
+    private volatile Table<R, M> table;
+    private volatile Map<E, Optional<M>> resolved = new IdentityHashMap<>();
+    private final Map<Object, Memoized<M>> memo = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * @param adapter The adapter of the current version
+     * @param leveled Whether any of the overrides is for a {@linkplain OverrideIds#isLevel(String) specific level}, so
+     *                levels must be looked up
+     */
+    public OverrideResolver(EnchantmentAdapter<R, E, M> adapter, boolean leveled) {
+        this.adapter = adapter;
+        this.leveled = leveled;
+    }
+
+    /**
+     * Checks if any of the given NEBs IDs is for a specific level, which is what decides if a resolver must look up
+     * levels at all. Packs without any level-specific models never pay for the extra lookup.
+     *
+     * @param ids The NEBs IDs of every override
+     * @return If any of the NEBs IDs is for a specific level
+     */
+    public static boolean anyLevel(Iterable<String> ids) {
+        for (String id : ids) {
+            if (OverrideIds.isLevel(id)) return true;
+        }
+
+        return false;
+    }
+
+    /** @return Whether levels are looked up by this resolver */
+    public boolean isLeveled() {
+        return this.leveled;
+    }
+
+    /** @return The stats of this resolver, which are only counted while stats are {@linkplain ResolutionStats#collect(boolean) collected} */
+    public ResolutionStats stats() {
+        return this.stats;
+    }
+
+    /**
+     * Compiles the lookup table for the given enchantment registry. It is built off to the side and published with a
+     * single write, so a reconnect or resource reload swaps it atomically. Every override in the registry is looked up,
+     * so this must not be used if the overrides are baked lazily.
+     *
+     * @param registry     The enchantment registry to build the table for
+     * @param enchantments Every enchantment in the registry
+     */
+    public void rebuild(R registry, Iterable<? extends E> enchantments) {
+        int size = 0;
+        for (E enchantment : enchantments) {
+            size = Math.max(size, this.adapter.rawIdOf(registry, enchantment) + 1);
+        }
+
+        Object[] models = new Object[size];
+        Long2ObjectMap<M> levels = new Long2ObjectOpenHashMap<>();
+        for (E enchantment : enchantments) {
+            int id = this.adapter.rawIdOf(registry, enchantment);
+            models[id] = this.lookup(enchantment, 0);
+            if (!this.leveled) continue;
+
+            for (int level = 1; level <= this.adapter.maxLevelOf(enchantment); level++) {
+                M override = this.lookup(enchantment, level);
+                if (override != null) levels.put(OverrideIds.pack(id, level), override);
+            }
+        }
+
+        this.table = new Table<>(registry, models, levels);
+        this.resolved = new IdentityHashMap<>();
+        this.memo.clear();
+    }
+
+    /**
+     * Throws away the lookup table and every cache, so that everything is resolved through the resolution cache from
+     * now on. This is used if the overrides are baked lazily, where building the table would bake all of them at once.
+     */
+    public void invalidate() {
+        this.table = null;
+        this.resolved = new IdentityHashMap<>();
+        this.memo.clear();
+    }
+
+    /**
+     * Resolves the baked override for the given stored enchantments. The result is memoized by the identity of the
+     * stored enchantments, which must therefore be immutable.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @param finder       Walks the stored enchantments on a memo miss, usually through
+     *                     {@link #overrideOf(Object, int)}
+     * @param <K>          The type of the stored enchantments
+     * @return The baked override, or {@code null} if none of the enchantments have one
+     */
+    public <K> M resolve(K enchantments, Function<? super K, ? extends M> finder) {
+        return this.resolve(enchantments, 0, finder);
+    }
+
+    /**
+     * Resolves the baked override for the given stored enchantments, which may be edited in place. The result is
+     * memoized by the identity of the stored enchantments along with the given hash of their contents, and is resolved
+     * again if the hash has changed since. This is used for NBT, where the same list tag can be edited in place.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @param hash         The hash of the contents of the stored enchantments
+     * @param finder       Walks the stored enchantments on a memo miss, usually through
+     *                     {@link #overrideOf(Object, int)}
+     * @param <K>          The type of the stored enchantments
+     * @return The baked override, or {@code null} if none of the enchantments have one
+     */
+    public <K> M resolve(K enchantments, int hash, Function<? super K, ? extends M> finder) {
+        Memoized<M> memoized = this.memo.get(enchantments);
+        if (memoized == null || memoized.hash != hash) {
+            if (ResolutionStats.collecting) this.stats.memoMisses.increment();
+            memoized = new Memoized<>(hash, finder.apply(enchantments));
+
+            if (this.memo.size() >= MEMO_SIZE) this.memo.clear();
+            this.memo.put(enchantments, memoized);
+        } else if (ResolutionStats.collecting) {
+            this.stats.memoHits.increment();
+        }
+
+        return memoized.override;
+    }
+
+    /**
+     * Gets the baked override for the given level of the given enchantment. If there is no override for that specific
+     * level, the override of the enchantment itself is used.
+     *
+     * @param enchantment The enchantment to get the override of
+     * @param level       The level of the enchantment
+     * @return The baked override, or {@code null} if the enchantment has none
+     */
+    public M overrideOf(E enchantment, int level) {
+        if (this.leveled) {
+            M override = this.levelOverrideOf(enchantment, level);
+            if (override != null) return override;
+        }
+
+        return this.overrideOf(enchantment);
+    }
+
+    private M levelOverrideOf(E enchantment, int level) {
+        // the table only holds levels up to the maximum, so higher levels from commands or other mods are looked up
+        Table<R, M> table = this.table;
+        if (table != null && level >= 1 && level <= this.adapter.maxLevelOf(enchantment)) {
+            int id = this.adapter.rawIdOf(table.registry, enchantment);
+            if (id >= 0 && id < table.models.length) {
+                return table.levels.get(OverrideIds.pack(id, level));
+            }
+        }
+
+        // the result is memoized along with the rest of the stored enchantments
+        return this.lookup(enchantment, level);
+    }
+
+    @SuppressWarnings("unchecked")
+    private M overrideOf(E enchantment) {
+        Table<R, M> table = this.table;
+        if (table != null) {
+            int id = this.adapter.rawIdOf(table.registry, enchantment);
+            if (id >= 0 && id < table.models.length) {
+                if (ResolutionStats.collecting) this.stats.tableLookups.increment();
+                return (M) table.models[id];
+            }
+        }
+
+        // table is missing or stale, so fall back to the resolution cache
+        if (ResolutionStats.collecting) this.stats.fallbackLookups.increment();
+        Map<E, Optional<M>> resolved = this.resolved;
+        Optional<M> override = resolved.get(enchantment);
+        if (override == null) {
+            override = Optional.ofNullable(this.lookup(enchantment, 0));
+
+            // copy on write, so readers on other threads never see the map while it is being modified
+            Map<E, Optional<M>> copy = new IdentityHashMap<>(resolved);
+            copy.put(enchantment, override);
+            this.resolved = copy;
+        }
+
+        return override.orElse(null);
+    }
+
+    /**
+     * Looks up the baked override for the given enchantment by NEBs ID. The NEBs ID of its registry key is tried first,
+     * and the NEBs ID of its description is only used as an alias for models named after a translation key that does
+     * not match it.
+     */
+    private M lookup(E enchantment, int level) {
+        String key = this.adapter.keyIdOf(enchantment);
+        M override = key != null ? this.adapter.overrideOf(OverrideIds.withLevel(key, level)) : null;
+        if (override != null) return override;
+
+        String description = this.adapter.descriptionIdOf(enchantment);
+        return description != null && !description.equals(key) ? this.adapter.overrideOf(OverrideIds.withLevel(description, level)) : null;
+    }
+
+    /**
+     * The memoized override of some stored enchantments, along with the hash of their contents when they were resolved.
+     */
+    private static final class Memoized<M> {
+        private final int hash;
+        private final M override;
+
+        private Memoized(int hash, M override) {
+            this.hash = hash;
+            this.override = override;
+        }
+    }
+
+    /**
+     * A dense lookup table of baked overrides, indexed by raw ID in the registry it was built from. Entries are
+     * {@code null} for enchantments that do not have an override. Overrides for specific levels are kept in a primitive
+     * map instead, keyed by raw ID and level {@linkplain OverrideIds#pack(int, int) packed} into a single {@code long}.
+     */
+    private static final class Table<R, M> {
+        private final R registry;
+        private final Object[] models;
+        private final Long2ObjectMap<M> levels;
+
+        private Table(R registry, Object[] models, Long2ObjectMap<M> levels) {
+            this.registry = registry;
+            this.models = models;
+            this.levels = levels;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.infernalstudios.nebs.core;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/**
+ * <h1>Registry Snapshot</h1>
+ * The enchantments of a registry as they were when the overrides were baked, for the versions where enchantments are
+ * not a data pack registry. Each enchantment is given a raw ID in the order it was registered in, held by identity.
+ * Forge remaps the IDs of its own registries in place when joining a server, so the raw IDs of the registry itself
+ * can't be used to index a {@linkplain OverrideResolver#rebuild(Object, Iterable) lookup table} that outlives it.
+ *
+ * @param <E> The type of the enchantments
+ * @since 2.0.4
+ */
+public final class RegistrySnapshot<E> {
+    private final Reference2IntMap<E> ids = new Reference2IntOpenHashMap<>();
+
+    /**
+     * @param enchantments Every enchantment in the registry
+     */
+    public RegistrySnapshot(Iterable<? extends E> enchantments) {
+        this.ids.defaultReturnValue(-1);
+        for (E enchantment : enchantments) {
+            if (!this.ids.containsKey(enchantment)) this.ids.put(enchantment, this.ids.size());
+        }
+    }
+
+    /**
+     * Gets the raw ID of the given enchantment in this snapshot.
+     *
+     * @param enchantment The enchantment to get the raw ID of
+     * @return The raw ID of the enchantment, or {@code -1} if it was not registered when the snapshot was taken
+     */
+    public int rawIdOf(E enchantment) {
+        return this.ids.getInt(enchantment);
+    }
+
+    /** @return The amount of enchantments in this snapshot */
+    public int size() {
+        return this.ids.size();
+    }
+}
@@ -0,0 +1,154 @@
+package org.infernalstudios.nebs.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Resolution Stats</h1>
+ * Counts how books are resolved by an {@link OverrideResolver}. The counters are striped, so that counting from the
+ * render thread and any other thread never contends. Every book is counted by its outcome, which is either an override
+ * from NEBs, a fall through to the base model, or a book without any enchantments at all.
+ * <p>
+ * Timing every book would cost more than resolving most of them, so only one in every {@value #SAMPLE_RATE} books is
+ * {@linkplain #sample(boolean) sampled} into the {@linkplain #latency() latency histogram}.
+ * <p>
+ * Even striped counters are not free on the render thread, so nothing is counted or sampled unless stats are being
+ * {@linkplain #collect(boolean) collected}, which is only the case while someone is looking at them.
+ *
+ * @since 2.0.4
+ */
+public final class ResolutionStats {
+    /** The rate at which books are sampled into the latency histogram, where one in every this many is timed. */
+    public static final int SAMPLE_RATE = 64;
+
+    static volatile boolean collecting = false;
+
+    final LongAdder memoHits = new LongAdder();
+    final LongAdder memoMisses = new LongAdder();
+    final LongAdder tableLookups = new LongAdder();
+    final LongAdder fallbackLookups = new LongAdder();
+    private final LongAdder overrides = new LongAdder();
+    private final LongAdder fallthroughs = new LongAdder();
+    private final LongAdder empty = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Starts or stops collecting stats for every resolver. Collecting is off by default, and books are neither counted
+     * nor sampled while it is off. The counters are kept as they are when collecting stops.
+     *
+     * @param collecting If stats should be collected
+     */
+    public static void collect(boolean collecting) {
+        ResolutionStats.collecting = collecting;
+    }
+
+    /** @return If stats are being collected */
+    public static boolean collecting() {
+        return collecting;
+    }
+
+    /**
+     * Decides if the book about to be resolved should be timed, which is true for one in every {@value #SAMPLE_RATE}
+     * books while stats are being collected.
+     *
+     * @param recording If the caller records sampled books somewhere else as well, such as in a flight recording, in
+     *                  which case books are also sampled while stats are not being collected
+     * @return If the book should be timed
+     */
+    public boolean sample(boolean recording) {
+        return (recording || collecting) && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+    }
+
+    /**
+     * Records the latency of a {@linkplain #sample(boolean) sampled} book, if stats are being collected.
+     *
+     * @param nanos The time it took to resolve the book, in nanoseconds
+     */
+    public void sampled(long nanos) {
+        if (collecting) this.latency.record(nanos);
+    }
+
+    /** Counts a book that was resolved to an override from NEBs. */
+    public void resolvedOverride() {
+        if (collecting) this.overrides.increment();
+    }
+
+    /** Counts a book that had no override, so it fell through to the base model. */
+    public void resolvedBase() {
+        if (collecting) this.fallthroughs.increment();
+    }
+
+    /** Counts a book without any enchantments, which also falls through to the base model. */
+    public void resolvedEmpty() {
+        if (collecting) this.empty.increment();
+    }
+
+    /** @return How many books were resolved to an override from NEBs */
+    public long overrides() {
+        return this.overrides.sum();
+    }
+
+    /** @return How many books fell through to the base model because none of their enchantments had an override */
+    public long fallthroughs() {
+        return this.fallthroughs.sum();
+    }
+
+    /** @return How many books did not have any enchantments */
+    public long empty() {
+        return this.empty.sum();
+    }
+
+    /** @return How many books were resolved from the memo */
+    public long memoHits() {
+        return this.memoHits.sum();
+    }
+
+    /** @return How many books had to be resolved because they were not in the memo */
+    public long memoMisses() {
+        return this.memoMisses.sum();
+    }
+
+    /** @return How many enchantments were looked up in the lookup table */
+    public long tableLookups() {
+        return this.tableLookups.sum();
+    }
+
+    /** @return How many enchantments were looked up by NEBs ID because the lookup table was missing or stale */
+    public long fallbackLookups() {
+        return this.fallbackLookups.sum();
+    }
+
+    /** @return The histogram of the sampled resolve latencies */
+    public LatencyHistogram latency() {
+        return this.latency;
+    }
+
+    /**
+     * Describes every counter and the latency histogram in a few human-readable lines, used by the stats command.
+     *
+     * @return The lines describing these stats
+     */
+    public List<String> describe() {
+        long books = this.overrides() + this.fallthroughs() + this.empty();
+        return Arrays.asList(
+            String.format(Locale.ROOT, "Resolved %d books: %d overrides, %d fell through to the base model, %d without enchantments", books, this.overrides(), this.fallthroughs(), this.empty()),
+            String.format(Locale.ROOT, "Memo: %d hits, %d misses; enchantments: %d from the lookup table, %d by NEBs ID", this.memoHits(), this.memoMisses(), this.tableLookups(), this.fallbackLookups()),
+            String.format(Locale.ROOT, "Latency (1 in %d sampled, %d samples): p50 %d ns, p90 %d ns, p99 %d ns, p99.9 %d ns, max %d ns", SAMPLE_RATE, this.latency.count(), this.latency.percentile(50), this.latency.percentile(90), this.latency.percentile(99), this.latency.percentile(99.9), this.latency.max())
+        );
+    }
+
+    /** Resets every counter to zero. */
+    public void reset() {
+        this.memoHits.reset();
+        this.memoMisses.reset();
+        this.tableLookups.reset();
+        this.fallbackLookups.reset();
+        this.overrides.reset();
+        this.fallthroughs.reset();
+        this.empty.reset();
+        this.latency.reset();
+    }
+}
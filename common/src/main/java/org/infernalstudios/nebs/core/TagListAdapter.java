@@ -0,0 +1,47 @@
+package org.infernalstudios.nebs.core;
+
+/**
+ * <h1>Tag List Adapter</h1>
+ * The bridge between a {@link TagListResolver} and the stored enchantments of a book on the versions before data
+ * components, where they are a list of compound tags that each hold the registry key and level of an enchantment. The
+ * list is read by index, so that walking it never has to decode it into a map of enchantments first.
+ *
+ * @param <L> The type of the list tag
+ * @param <E> The type of the enchantments
+ * @since 2.0.4
+ */
+public interface TagListAdapter<L, E> {
+    /**
+     * Gets the size of the given list of stored enchantments.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @return The amount of stored enchantments
+     */
+    int sizeOf(L enchantments);
+
+    /**
+     * Gets the registry key at the given index, exactly as it is written in the tag.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @param index        The index of the stored enchantment
+     * @return The registry key of the stored enchantment
+     */
+    String idAt(L enchantments, int index);
+
+    /**
+     * Gets the level at the given index.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @param index        The index of the stored enchantment
+     * @return The level of the stored enchantment
+     */
+    int levelAt(L enchantments, int index);
+
+    /**
+     * Gets the enchantment of the given registry key, as it is written in the tag.
+     *
+     * @param id The registry key of the enchantment
+     * @return The enchantment, or {@code null} if there is no enchantment with that key
+     */
+    E enchantmentOf(String id);
+}
@@ -0,0 +1,77 @@
+package org.infernalstudios.nebs.core;
+
+import java.util.function.Function;
+
+/**
+ * <h1>Tag List Resolver</h1>
+ * Resolves the stored enchantments of a book on the versions before data components through an
+ * {@link OverrideResolver}. Since NBT is mutable and can be edited in place, the list tag is memoized along with a
+ * {@linkplain #hashOf(Object) hash} of the IDs and levels in it, and is resolved again if it has changed. On a memo
+ * miss, the list is walked by index until the first enchantment with an override is found.
+ *
+ * @param <L> The type of the list tag
+ * @param <E> The type of the enchantments
+ * @param <M> The type of the baked models
+ * @since 2.0.4
+ */
+public final class TagListResolver<L, E, M> {
+    private final OverrideResolver<?, E, M> resolver;
+    private final TagListAdapter<L, E> adapter;
+    private final Function<L, M> finder = this::find;
+
+    /**
+     * @param resolver The resolver to look up the overrides of each enchantment with
+     * @param adapter  The adapter of the list tags of the current version
+     */
+    public TagListResolver(OverrideResolver<?, E, M> resolver, TagListAdapter<L, E> adapter) {
+        this.resolver = resolver;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Resolves the baked override for the given stored enchantments.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
+     */
+    public M resolve(L enchantments) {
+        // stacks without enchantments get a new empty list every time, so don't bother memoizing those
+        if (this.adapter.sizeOf(enchantments) == 0) return null;
+
+        return this.resolver.resolve(enchantments, this.hashOf(enchantments), this.finder);
+    }
+
+    /**
+     * Walks the given stored enchantments, without going through the memo.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @return The baked override of the first enchantment that has one, or {@code null} if there is none
+     */
+    public M find(L enchantments) {
+        M override = null;
+        for (int i = 0; i < this.adapter.sizeOf(enchantments) && override == null; i++) {
+            E enchantment = this.adapter.enchantmentOf(this.adapter.idAt(enchantments, i));
+            if (enchantment != null) {
+                override = this.resolver.overrideOf(enchantment, this.resolver.isLeveled() ? this.adapter.levelAt(enchantments, i) : 0);
+            }
+        }
+
+        return override;
+    }
+
+    /**
+     * Hashes the IDs and levels of the given stored enchantments. The IDs are the strings held by the tags, which cache
+     * their own hash codes, so this is a walk over the list that does not allocate anything.
+     *
+     * @param enchantments The stored enchantments of the book
+     * @return The hash of the stored enchantments
+     */
+    public int hashOf(L enchantments) {
+        int hash = 1;
+        for (int i = 0; i < this.adapter.sizeOf(enchantments); i++) {
+            hash = 31 * (31 * hash + this.adapter.idAt(enchantments, i).hashCode()) + this.adapter.levelAt(enchantments, i);
+        }
+
+        return hash;
+    }
+}
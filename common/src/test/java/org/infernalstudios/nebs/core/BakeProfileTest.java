@@ -0,0 +1,44 @@
+package org.infernalstudios.nebs.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BakeProfileTest {
+    @Test
+    void writesEveryBakeAndTheSlowestSeparately(@TempDir Path dir) throws IOException {
+        int models = BakeProfile.SLOWEST * 3;
+        BakeProfile profile = new BakeProfile();
+        profile.discovered(models, 0, 1_000L);
+        for (int i = 0; i < models; i++) {
+            profile.baked("test.model_" + i, i, true);
+        }
+        profile.finish(1_000_000L, false);
+
+        Path file = dir.resolve("profile.json");
+        profile.write(file);
+
+        JsonObject bake;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            bake = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonObject("bake");
+        }
+
+        JsonArray written = bake.getAsJsonArray("models");
+        assertEquals(models, written.size());
+        assertEquals("test.model_0", written.get(0).getAsJsonObject().get("model").getAsString());
+
+        JsonArray slowest = bake.getAsJsonArray("slowest");
+        assertEquals(BakeProfile.SLOWEST, slowest.size());
+        assertEquals("test.model_" + (models - 1), slowest.get(0).getAsJsonObject().get("model").getAsString());
+    }
+}
@@ -0,0 +1,25 @@
+package org.infernalstudios.nebs.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OverrideCursorTest {
+    @Test
+    void theFirstEnchantmentWithAnOverrideIsFound() {
+        TestAdapter adapter = new TestAdapter("minecraft.mending", "minecraft.sharpness");
+        OverrideCursor<List<String>, String, String> cursor = new OverrideCursor<>(List::forEach, (enchantments, id) -> adapter.overrideOf(id));
+
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness"), cursor.find(Arrays.asList("minecraft.unbreaking", "minecraft.sharpness", "minecraft.mending")));
+        assertEquals(2, adapter.lookups.get());
+
+        // nothing is left over from the previous book
+        assertNull(cursor.find(Arrays.asList("minecraft.unbreaking", "minecraft.protection")));
+        assertEquals(TestAdapter.modelOf("minecraft.mending"), cursor.find(Collections.singletonList("minecraft.mending")));
+    }
+}
@@ -0,0 +1,47 @@
+package org.infernalstudios.nebs.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverrideModelsTest {
+    private static final TestAdapter.Enchantment SHARPNESS = new TestAdapter.Enchantment("minecraft.sharpness", "minecraft.sharpness", 5);
+    private static final TestAdapter.Enchantment RENAMED = new TestAdapter.Enchantment("othermod.renamed", "othermod.old_name", 1);
+    private static final TestAdapter.Enchantment UNNAMED = new TestAdapter.Enchantment(null, "othermod.unnamed", 1);
+    private static final TestAdapter.Enchantment INFUSION = new TestAdapter.Enchantment("apotheosis.infusion", "apotheosis.infusion", 1);
+    private static final List<TestAdapter.Enchantment> ENCHANTMENTS = Arrays.asList(SHARPNESS, RENAMED, UNNAMED, INFUSION);
+
+    @Test
+    void onlyBundledModelsOfMissingNamespacesArePruned() {
+        Set<String> registered = new HashSet<>(Collections.singletonList("datapack.custom"));
+
+        assertTrue(OverrideModels.shouldPrepare("minecraft.sharpness.5", "minecraft"::equals, registered, () -> true));
+        assertTrue(OverrideModels.shouldPrepare("datapack.custom.3", "minecraft"::equals, registered, () -> true));
+        assertTrue(OverrideModels.shouldPrepare("othermod.renamed", "minecraft"::equals, registered, () -> false));
+        assertFalse(OverrideModels.shouldPrepare("othermod.renamed", "minecraft"::equals, registered, () -> true));
+    }
+
+    @Test
+    void registeredIdsHaveBothTheKeyAndTheDescription() {
+        Set<String> ids = OverrideModels.registeredIds(ENCHANTMENTS, enchantment -> enchantment.key, enchantment -> enchantment.description);
+
+        assertEquals(new HashSet<>(Arrays.asList("minecraft.sharpness", "othermod.renamed", "othermod.old_name", "othermod.unnamed", "apotheosis.infusion")), ids);
+    }
+
+    @Test
+    void missingModelsAreReportedByTheirKey() {
+        Set<String> textured = new HashSet<>(Collections.singletonList("othermod.old_name"));
+        Set<String> ignored = new HashSet<>(Collections.singletonList("apotheosis.infusion"));
+
+        assertEquals(Arrays.asList("minecraft.sharpness", "othermod.unnamed"), new ArrayList<>(OverrideModels.missing(ENCHANTMENTS, enchantment -> enchantment.key, enchantment -> enchantment.description, textured, ignored)));
+    }
+}
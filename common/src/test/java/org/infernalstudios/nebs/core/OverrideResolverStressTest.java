@@ -0,0 +1,156 @@
+package org.infernalstudios.nebs.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resolves books from several threads while another thread keeps rebuilding and invalidating the lookup table, like a
+ * resource reload or reconnect does while books are rendered off the render thread. Every book must resolve to the
+ * same override no matter which table, cache or memo it was resolved through.
+ */
+class OverrideResolverStressTest {
+    private static final int ENCHANTMENTS = 64;
+    private static final int MAX_LEVEL = 3;
+    /** More books than fit in the memo, so that it is also cleared while other threads read it. */
+    private static final int BOOKS = OverrideResolver.MEMO_SIZE * 4;
+    private static final int READERS = 4;
+    private static final int RESOLVES = 200_000;
+
+    @BeforeEach
+    void collect() {
+        ResolutionStats.collect(true);
+    }
+
+    @AfterEach
+    void stopCollecting() {
+        ResolutionStats.collect(false);
+    }
+
+    @Test
+    void resolvesConsistentlyWhileRebuilding() throws InterruptedException {
+        List<TestAdapter.Enchantment> enchantments = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < ENCHANTMENTS; i++) {
+            String id = "test.enchantment_" + i;
+            enchantments.add(new TestAdapter.Enchantment(id, "description." + i, MAX_LEVEL));
+
+            // every other enchantment has an override, and every eighth one has its own model for level 2
+            if (i % 2 == 0) ids.add(id);
+            if (i % 8 == 0) ids.add(OverrideIds.withLevel(id, 2));
+        }
+
+        TestAdapter adapter = new TestAdapter(ids.toArray(new String[0]));
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver = new OverrideResolver<>(adapter, OverrideResolver.anyLevel(ids));
+
+        Random random = new Random(42);
+        List<List<Stored>> books = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            List<Stored> book = new ArrayList<>();
+            for (int j = random.nextInt(3) + 1; j > 0; j--) {
+                book.add(new Stored(enchantments.get(random.nextInt(ENCHANTMENTS)), random.nextInt(MAX_LEVEL) + 1));
+            }
+
+            books.add(Collections.unmodifiableList(book));
+            expected.add(expectedOf(book, ids));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch done = new CountDownLatch(READERS);
+
+        // reconnects and resource reloads, each with the raw IDs shuffled so that the old table is stale
+        Thread writer = new Thread(() -> {
+            Random shuffle = new Random(7);
+            try {
+                while (running.get()) {
+                    List<TestAdapter.Enchantment> order = new ArrayList<>(enchantments);
+                    Collections.shuffle(order, shuffle);
+                    TestAdapter.Registry registry = new TestAdapter.Registry(order);
+                    resolver.rebuild(registry, registry.enchantments);
+                    resolver.invalidate();
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+        }, "rebuild");
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            long seed = r;
+            readers.add(new Thread(() -> {
+                Random picks = new Random(seed);
+                try {
+                    for (int i = 0; i < RESOLVES; i++) {
+                        int book = picks.nextInt(BOOKS);
+                        String override = resolver.resolve(books.get(book), stored -> find(resolver, stored));
+                        if (!String.valueOf(expected.get(book)).equals(String.valueOf(override)))
+                            throw new AssertionError("Book " + books.get(book) + " resolved to " + override + " instead of " + expected.get(book));
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    done.countDown();
+                }
+            }, "resolve-" + r));
+        }
+
+        writer.start();
+        readers.forEach(Thread::start);
+        done.await();
+        running.set(false);
+        writer.join();
+
+        assertTrue(failures.isEmpty(), () -> "Resolving failed: " + failures);
+        assertEquals(READERS * (long) RESOLVES, resolver.stats().memoHits() + resolver.stats().memoMisses());
+    }
+
+    private static String find(OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver, List<Stored> book) {
+        for (Stored stored : book) {
+            String override = resolver.overrideOf(stored.enchantment, resolver.isLeveled() ? stored.level : 0);
+            if (override != null) return override;
+        }
+
+        return null;
+    }
+
+    /** Resolves the given book the slow way, by NEBs ID, which is what every path of the resolver must agree with. */
+    private static String expectedOf(List<Stored> book, List<String> ids) {
+        for (Stored stored : book) {
+            String level = OverrideIds.withLevel(stored.enchantment.key, stored.level);
+            if (ids.contains(level)) return TestAdapter.modelOf(level);
+            if (ids.contains(stored.enchantment.key)) return TestAdapter.modelOf(stored.enchantment.key);
+        }
+
+        return null;
+    }
+
+    /** A stored enchantment on a book. */
+    private static final class Stored {
+        private final TestAdapter.Enchantment enchantment;
+        private final int level;
+
+        private Stored(TestAdapter.Enchantment enchantment, int level) {
+            this.enchantment = enchantment;
+            this.level = level;
+        }
+
+        @Override
+        public String toString() {
+            return this.enchantment + " " + this.level;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.infernalstudios.nebs.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverrideResolverTest {
+    private static final TestAdapter.Enchantment SHARPNESS = new TestAdapter.Enchantment("minecraft.sharpness", "minecraft.sharpness", 5);
+    private static final TestAdapter.Enchantment MENDING = new TestAdapter.Enchantment("minecraft.mending", "minecraft.mending", 1);
+    private static final TestAdapter.Enchantment RENAMED = new TestAdapter.Enchantment("othermod.renamed", "othermod.old_name", 1);
+    private static final TestAdapter.Registry REGISTRY = new TestAdapter.Registry(Arrays.asList(SHARPNESS, MENDING, RENAMED));
+
+    private static OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolverOf(TestAdapter adapter, String... ids) {
+        return new OverrideResolver<>(adapter, OverrideResolver.anyLevel(Arrays.asList(ids)));
+    }
+
+    @BeforeEach
+    void collect() {
+        ResolutionStats.collect(true);
+    }
+
+    @AfterEach
+    void stopCollecting() {
+        ResolutionStats.collect(false);
+    }
+
+    @Test
+    void levelsAboveTheMaximumAgreeWithAndWithoutTable() {
+        String[] ids = {"minecraft.sharpness", "minecraft.sharpness.5", "minecraft.sharpness.10", "minecraft.mending.2"};
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> withTable = resolverOf(new TestAdapter(ids), ids);
+        withTable.rebuild(REGISTRY, REGISTRY.enchantments);
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> withoutTable = resolverOf(new TestAdapter(ids), ids);
+
+        for (TestAdapter.Enchantment enchantment : REGISTRY.enchantments) {
+            for (int level = 1; level <= 12; level++) {
+                assertEquals(withoutTable.overrideOf(enchantment, level), withTable.overrideOf(enchantment, level), enchantment + " " + level);
+            }
+        }
+
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness.10"), withTable.overrideOf(SHARPNESS, 10));
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness"), withTable.overrideOf(SHARPNESS, 11));
+        assertEquals(TestAdapter.modelOf("minecraft.mending.2"), withTable.overrideOf(MENDING, 2));
+    }
+
+    @Test
+    void levelsFallBackToTheEnchantment() {
+        String[] ids = {"minecraft.sharpness", "minecraft.sharpness.5"};
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver = resolverOf(new TestAdapter(ids), ids);
+        resolver.rebuild(REGISTRY, REGISTRY.enchantments);
+
+        assertTrue(resolver.isLeveled());
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness.5"), resolver.overrideOf(SHARPNESS, 5));
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness"), resolver.overrideOf(SHARPNESS, 4));
+        assertNull(resolver.overrideOf(MENDING, 1));
+    }
+
+    @Test
+    void descriptionIsUsedAsAlias() {
+        TestAdapter adapter = new TestAdapter("othermod.old_name");
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver = resolverOf(adapter, "othermod.old_name");
+
+        assertFalse(resolver.isLeveled());
+        assertEquals(TestAdapter.modelOf("othermod.old_name"), resolver.overrideOf(RENAMED, 1));
+    }
+
+    @Test
+    void staleTableFallsBackToResolutionCache() {
+        TestAdapter adapter = new TestAdapter("minecraft.mending");
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver = resolverOf(adapter, "minecraft.mending");
+        resolver.rebuild(new TestAdapter.Registry(Arrays.asList(SHARPNESS)), Arrays.asList(SHARPNESS));
+
+        assertEquals(TestAdapter.modelOf("minecraft.mending"), resolver.overrideOf(MENDING, 1));
+        int lookups = adapter.lookups.get();
+        assertEquals(TestAdapter.modelOf("minecraft.mending"), resolver.overrideOf(MENDING, 1));
+        assertEquals(lookups, adapter.lookups.get(), "the stale enchantment should be cached by identity");
+        assertEquals(2, resolver.stats().fallbackLookups());
+    }
+
+    @Test
+    void memoIsHeldByIdentity() {
+        TestAdapter adapter = new TestAdapter("minecraft.mending");
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver = resolverOf(adapter, "minecraft.mending");
+        List<TestAdapter.Enchantment> book = Arrays.asList(SHARPNESS, MENDING);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TestAdapter.modelOf("minecraft.mending"), resolver.resolve(book, b -> resolver.overrideOf(b.get(1), 1)));
+        }
+
+        assertEquals(1, resolver.stats().memoMisses());
+        assertEquals(2, resolver.stats().memoHits());
+
+        resolver.invalidate();
+        resolver.resolve(book, b -> resolver.overrideOf(b.get(1), 1));
+        assertEquals(2, resolver.stats().memoMisses());
+    }
+
+    @Test
+    void nothingIsCountedWhileNotCollecting() {
+        ResolutionStats.collect(false);
+        TestAdapter adapter = new TestAdapter("minecraft.mending");
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver = resolverOf(adapter, "minecraft.mending");
+        List<TestAdapter.Enchantment> book = Arrays.asList(SHARPNESS, MENDING);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TestAdapter.modelOf("minecraft.mending"), resolver.resolve(book, b -> resolver.overrideOf(b.get(1), 1)));
+            assertFalse(resolver.stats().sample(false));
+            resolver.stats().resolvedOverride();
+        }
+
+        assertEquals(0, resolver.stats().memoMisses() + resolver.stats().memoHits() + resolver.stats().fallbackLookups());
+        assertEquals(0, resolver.stats().overrides());
+    }
+}
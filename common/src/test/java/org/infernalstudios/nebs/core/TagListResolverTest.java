@@ -0,0 +1,110 @@
+package org.infernalstudios.nebs.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TagListResolverTest {
+    private static final TestAdapter.Enchantment SHARPNESS = new TestAdapter.Enchantment("minecraft.sharpness", "minecraft.sharpness", 5);
+    private static final TestAdapter.Enchantment MENDING = new TestAdapter.Enchantment("minecraft.mending", "minecraft.mending", 1);
+    private static final List<TestAdapter.Enchantment> ENCHANTMENTS = Arrays.asList(SHARPNESS, MENDING);
+
+    private static TagListResolver<List<Tag>, TestAdapter.Enchantment, String> resolverOf(TestAdapter adapter, String... ids) {
+        OverrideResolver<TestAdapter.Registry, TestAdapter.Enchantment, String> resolver = new OverrideResolver<>(adapter, OverrideResolver.anyLevel(Arrays.asList(ids)));
+        TestAdapter.Registry registry = new TestAdapter.Registry(ENCHANTMENTS);
+        resolver.rebuild(registry, registry.enchantments);
+        return new TagListResolver<>(resolver, new Tags());
+    }
+
+    @Test
+    void resolvesFirstEnchantmentWithOverride() {
+        TagListResolver<List<Tag>, TestAdapter.Enchantment, String> resolver = resolverOf(new TestAdapter("minecraft.mending"), "minecraft.mending");
+        List<Tag> book = new ArrayList<>(Arrays.asList(new Tag("minecraft:unknown", 1), new Tag("minecraft:sharpness", 2), new Tag("minecraft:mending", 1)));
+
+        assertEquals(TestAdapter.modelOf("minecraft.mending"), resolver.resolve(book));
+        assertNull(resolver.resolve(new ArrayList<>()));
+    }
+
+    @Test
+    void editedListIsResolvedAgain() {
+        TestAdapter adapter = new TestAdapter("minecraft.sharpness");
+        TagListResolver<List<Tag>, TestAdapter.Enchantment, String> resolver = resolverOf(adapter, "minecraft.sharpness");
+        List<Tag> book = new ArrayList<>(Arrays.asList(new Tag("minecraft:mending", 1)));
+
+        assertNull(resolver.resolve(book));
+        assertNull(resolver.resolve(book));
+
+        // the same list, edited in place like a command or another mod can
+        book.get(0).id = "minecraft:sharpness";
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness"), resolver.resolve(book));
+    }
+
+    @Test
+    void levelsAreReadOnlyIfLeveled() {
+        TagListResolver<List<Tag>, TestAdapter.Enchantment, String> resolver = resolverOf(new TestAdapter("minecraft.sharpness", "minecraft.sharpness.5"), "minecraft.sharpness", "minecraft.sharpness.5");
+        List<Tag> book = new ArrayList<>(Arrays.asList(new Tag("minecraft:sharpness", 5)));
+
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness.5"), resolver.resolve(book));
+        book.get(0).level = 4;
+        assertEquals(TestAdapter.modelOf("minecraft.sharpness"), resolver.resolve(book));
+    }
+
+    @Test
+    void snapshotKeepsRegistrationOrder() {
+        RegistrySnapshot<TestAdapter.Enchantment> snapshot = new RegistrySnapshot<>(Arrays.asList(MENDING, SHARPNESS, MENDING));
+
+        assertEquals(2, snapshot.size());
+        assertEquals(0, snapshot.rawIdOf(MENDING));
+        assertEquals(1, snapshot.rawIdOf(SHARPNESS));
+        assertEquals(-1, snapshot.rawIdOf(new TestAdapter.Enchantment("minecraft.sharpness", "minecraft.sharpness", 5)));
+    }
+
+    /** A stored enchantment compound tag, which is mutable just like NBT. */
+    private static final class Tag {
+        private String id;
+        private int level;
+
+        private Tag(String id, int level) {
+            this.id = id;
+            this.level = level;
+        }
+    }
+
+    /** Reads the stand-in tags, where the registry key is the NEBs ID with a colon after the namespace. */
+    private static final class Tags implements TagListAdapter<List<Tag>, TestAdapter.Enchantment> {
+        private final Map<String, TestAdapter.Enchantment> byId = new HashMap<>();
+
+        private Tags() {
+            for (TestAdapter.Enchantment enchantment : ENCHANTMENTS) {
+                this.byId.put(enchantment.key.replaceFirst("\\.", ":"), enchantment);
+            }
+        }
+
+        @Override
+        public int sizeOf(List<Tag> enchantments) {
+            return enchantments.size();
+        }
+
+        @Override
+        public String idAt(List<Tag> enchantments, int index) {
+            return enchantments.get(index).id;
+        }
+
+        @Override
+        public int levelAt(List<Tag> enchantments, int index) {
+            return enchantments.get(index).level;
+        }
+
+        @Override
+        public TestAdapter.Enchantment enchantmentOf(String id) {
+            return this.byId.get(id);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.infernalstudios.nebs.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A plain adapter for the tests of the core, where the models are the NEBs IDs they were baked for, prefixed with
+ * {@code model:}. It counts how many times it was asked for an override, so that tests can tell a cached lookup apart
+ * from a fresh one.
+ */
+final class TestAdapter implements EnchantmentAdapter<TestAdapter.Registry, TestAdapter.Enchantment, String> {
+    private final Map<String, String> overrides = new HashMap<>();
+    final AtomicInteger lookups = new AtomicInteger();
+
+    /**
+     * @param ids The NEBs IDs that have an override
+     */
+    TestAdapter(String... ids) {
+        for (String id : ids) {
+            this.overrides.put(id, modelOf(id));
+        }
+    }
+
+    static String modelOf(String id) {
+        return "model:" + id;
+    }
+
+    @Override
+    public int rawIdOf(Registry registry, Enchantment enchantment) {
+        Integer id = registry.ids.get(enchantment);
+        return id != null ? id : -1;
+    }
+
+    @Override
+    public String keyIdOf(Enchantment enchantment) {
+        return enchantment.key;
+    }
+
+    @Override
+    public String descriptionIdOf(Enchantment enchantment) {
+        return enchantment.description;
+    }
+
+    @Override
+    public int maxLevelOf(Enchantment enchantment) {
+        return enchantment.maxLevel;
+    }
+
+    @Override
+    public String overrideOf(String id) {
+        this.lookups.incrementAndGet();
+        return this.overrides.get(id);
+    }
+
+    /** An enchantment, with the NEBs IDs of its registry key and description. */
+    static final class Enchantment {
+        final String key;
+        final String description;
+        final int maxLevel;
+
+        Enchantment(String key, String description, int maxLevel) {
+            this.key = key;
+            this.description = description;
+            this.maxLevel = maxLevel;
+        }
+
+        @Override
+        public String toString() {
+            return this.key;
+        }
+    }
+
+    /** A registry, where the raw ID of each enchantment is its index in the list it was created from. */
+    static final class Registry {
+        final List<Enchantment> enchantments;
+        private final Map<Enchantment, Integer> ids = new IdentityHashMap<>();
+
+        Registry(List<Enchantment> enchantments) {
+            this.enchantments = Collections.unmodifiableList(new ArrayList<>(enchantments));
+            for (int i = 0; i < enchantments.size(); i++) {
+                this.ids.put(enchantments.get(i), i);
+            }
+        }
+    }
+}